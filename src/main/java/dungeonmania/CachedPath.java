@@ -0,0 +1,110 @@
+package dungeonmania;
+
+/**
+ * The last path an entity got from DungeonMap.stepTowardsPlayer, so that it
+ * doesn't search again every tick. Each entity that follows the player keeps
+ * its own.
+ *
+ * The path is reused as long as the map didn't change (see
+ * DungeonMap.getBlockingVersion), the entity is where the path says it should
+ * be, and the player is on the end of the path. When the player steps back
+ * onto the path, the path is cut short instead of searched again.
+ *
+ * Only the steps that are the only cheapest ones are cached (see
+ * CostField.getCheapestSteps), so a path can stop before the player: the
+ * entity then asks again from there. Those steps are the ones findPath would
+ * take from each cell of the path, and still are when the path is cut short
+ * (a cheapest path to the cell before the player's, and then the player's, is
+ * a cheapest path to the player's).
+ */
+public class CachedPath {
+
+    private int[] path = null;
+    private int length = 0;
+    /**
+     * index of the player's cell the path was found for, or was cut short to
+     */
+    private int target = -1;
+    /**
+     * index in path of the cell the entity was on when it last asked
+     */
+    private int position = 0;
+    private int version = -1;
+
+    /**
+     * @param from    index of the cell the entity is on
+     * @param target  index of the player's cell
+     * @param version current blocking version of the map
+     * @return index of the next cell on the cached path (from if the player is
+     *         on it), -1 if the path can't be used or stops there
+     */
+    int next(int from, int target, int version) {
+        if (path == null || version != this.version) return -1;
+
+        if (path[position] != from) {
+            // the entity moved along the path since
+            if (!moveAlong(from)) return -1;
+        }
+        boolean whole = path[length - 1] == this.target;
+        if (target != this.target) {
+            // the player stepped back onto the path
+            if (whole && length - 2 >= position && path[length - 2] == target) {
+                length--;
+                this.target = target;
+            } else {
+                return -1;
+            }
+        }
+        if (position + 1 < length) return path[position + 1];
+        return whole ? from : -1;
+    }
+
+    /**
+     * The next cell of the path even if the map or the player changed since,
+     * for when there is no time to search again (see
+     * DungeonMap.setSearchBudget). The path is kept as it is.
+     * 
+     * @param from index of the cell the entity is on
+     * @return index of the next cell, -1 if the entity isn't on the path or at
+     *         its end
+     */
+    int planned(int from) {
+        if (path == null) return -1;
+        if (path[position] != from && !moveAlong(from)) return -1;
+        return position + 1 < length ? path[position + 1] : -1;
+    }
+
+    /**
+     * Moves position to from if it is the next cell of the path, or the one
+     * after (the entity walked onto a portal and ended on its pair)
+     *
+     * @return false if from isn't there
+     */
+    private boolean moveAlong(int from) {
+        if (position + 1 < length && path[position + 1] == from) position++;
+        else if (position + 2 < length && path[position + 2] == from) position += 2;
+        else return false;
+        return true;
+    }
+
+    /**
+     * @param path    indices of the cells of a cheapest path, from the entity's
+     *                cell to the player's or part of the way
+     * @param target  index of the player's cell
+     * @param version blocking version of the map the path was found on
+     */
+    void store(int[] path, int target, int version) {
+        this.path = path;
+        this.length = path.length;
+        this.target = target;
+        this.position = 0;
+        this.version = version;
+    }
+
+    /**
+     * Forgets the path
+     */
+    public void clear() {
+        this.path = null;
+    }
+}
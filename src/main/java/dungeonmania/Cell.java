@@ -6,10 +6,8 @@ import java.util.List;
 import dungeonmania.entities.LogicalEntity;
 import dungeonmania.entities.StaticEntity;
 import dungeonmania.entities.logicals.FloorSwitch;
-import dungeonmania.entities.movings.Player;
 import dungeonmania.entities.statics.Boulder;
 import dungeonmania.entities.statics.Door;
-import dungeonmania.entities.statics.Exit;
 import dungeonmania.entities.statics.Portal;
 import dungeonmania.entities.statics.Swamp;
 import dungeonmania.util.BlockingReason;
@@ -24,10 +22,23 @@ public class Cell {
      * all the entities on that cell
      */
     private List<Entity> occupants = new ArrayList<>();
+    /**
+     * union of the OccupantKind bits of all the occupants
+     */
+    private int kinds = 0;
+    private DungeonMap map;
+    private int index;
     private Pos2d position;
-    private Integer playerDistance;
 
-    public Cell(Pos2d position) {
+    /**
+     * Cells are made by the DungeonMap they belong to.
+     * @param map the map this cell is part of
+     * @param index of this cell in the map (see DungeonMap.toIndex)
+     * @param position of this cell
+     */
+    public Cell(DungeonMap map, int index, Pos2d position) {
+        this.map = map;
+        this.index = index;
         this.position = position;
     }
 
@@ -36,7 +47,7 @@ public class Cell {
      * @return Integer representing the distance 
      */
     public Integer getPlayerDistance() {
-        return this.playerDistance;
+        return map.getPlayerDistance(index);
     }
 
     /**
@@ -44,24 +55,32 @@ public class Cell {
      * @return Integer representing the coast 
      */
     public Integer getTravelCost() {
-        if (getSwamp() != null) return getSwamp().getMovementFactor();
-        return 1;
+        return map.getTravelCost(index);
     }
 
     public void setPlayerDistance(Integer playerDistance) {
-        this.playerDistance = playerDistance;
+        map.setPlayerDistance(index, playerDistance);
     }
 
     public Pos2d getPosition() {
         return this.position;
     }
 
+    /**
+     * @return the index of this cell in its map (see DungeonMap.toIndex)
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
     /**
      * Add an occupent to the current list of occupants in the cell
      * @param e, an entity
      */
     public void addOccupant(Entity e) {
         this.occupants.add(e);
+        this.kinds |= OccupantKind.maskOf(e);
+        map.onOccupantAdded(this, e);
     }
 
     /**
@@ -69,7 +88,31 @@ public class Cell {
      * @return boolean, true if there is boulder and false if not
      */
     public boolean hasBoulder() {
-        return occupants.stream().anyMatch(occupant -> occupant instanceof Boulder);
+        return has(OccupantKind.BOULDER);
+    }
+
+    /**
+     * Single bit test, doesn't look at the occupants
+     * @param kind
+     * @return true if one of the occupants is of that kind
+     */
+    public boolean has(OccupantKind kind) {
+        return (this.kinds & kind.bit()) != 0;
+    }
+
+    /**
+     * @param <T> type
+     * @param kind the kind that instances of type are
+     * @param type
+     * @return the first occupant of that type, or null. Doesn't look at the
+     *         occupants if there is none of that kind.
+     */
+    private <T> T getFirst(OccupantKind kind, Class<T> type) {
+        if (!has(kind)) return null;
+        for (Entity e : occupants) {
+            if (type.isInstance(e)) return type.cast(e);
+        }
+        return null;
     }
 
     /**
@@ -78,12 +121,7 @@ public class Cell {
      * @return true if boulder is successfully pushed
      */
     public boolean pushBoulder(Direction d) {
-        Boulder boulder = null;
-        for (Entity e : occupants) {
-            if (e instanceof Boulder) {
-                boulder = (Boulder) e;
-            }
-        }
+        Boulder boulder = getFirst(OccupantKind.BOULDER, Boulder.class);
 
         if (boulder == null) return false;
         else return boulder.roll(d);
@@ -94,12 +132,7 @@ public class Cell {
      * @return boolean representing success
      */
     public boolean unlockDoor() {
-        Door door = null;
-        for (Entity e : occupants) {
-            if (e instanceof Door) {
-                door = (Door) e;
-            }
-        }
+        Door door = getFirst(OccupantKind.DOOR, Door.class);
 
         if (door == null) return false;
         else return door.open();
@@ -110,7 +143,7 @@ public class Cell {
      * @return
      */
     public Portal hasPortal() {
-        return (Portal) occupants.stream().filter(o -> o instanceof Portal).findFirst().orElse(null);
+        return getFirst(OccupantKind.PORTAL, Portal.class);
     }
 
     /**
@@ -118,7 +151,7 @@ public class Cell {
      * @return
      */
     public Swamp getSwamp() {
-        return (Swamp) occupants.stream().filter(o -> o instanceof Swamp).findFirst().orElse(null);
+        return getFirst(OccupantKind.SWAMP, Swamp.class);
     }
 
     /**
@@ -126,26 +159,21 @@ public class Cell {
      * @return
      */
     public FloorSwitch getFloorSwitch() {
-        for (Entity occupant: this.occupants) {
-            if (occupant instanceof FloorSwitch) {
-                return (FloorSwitch) occupant;
-            }
-        }
-        return null;
+        return getFirst(OccupantKind.FLOOR_SWITCH, FloorSwitch.class);
     }
     
     /**
      * @return boolean, true if the player is on this cell, false otherwise
      */
     public boolean hasPlayer() {
-        return this.occupants.stream().anyMatch(e -> e instanceof Player);
+        return has(OccupantKind.PLAYER);
     }
 
     /**
      * @return boolean, true if the exit is on this cell, false otherwise
      */
     public boolean hasExit() {
-        return this.occupants.stream().anyMatch(e -> e instanceof Exit);
+        return has(OccupantKind.EXIT);
     }
     
     /**
@@ -161,13 +189,33 @@ public class Cell {
      * @return boolean representing success of the removal
      */
     public boolean removeOccupant(Entity e) {
-        return this.occupants.remove(e);
+        boolean removed = this.occupants.remove(e);
+        if (removed) {
+            // there might be other occupants of the same kind
+            this.kinds = 0;
+            for (Entity occupant : this.occupants) {
+                this.kinds |= OccupantKind.maskOf(occupant);
+            }
+            map.onOccupantRemoved(this, e);
+        }
+        return removed;
+    }
+
+    /**
+     * Has to be called when the state of an occupant changes in a way that
+     * changes its type string (a door that unlocks for example).
+     * @param e, the entity whose state changed
+     */
+    public void occupantChanged(Entity e) {
+        map.onOccupantChanged(this, e);
     }
 
     /**
      * @return the blocking reason of this cell
      */
     public BlockingReason getBlocking() {
+        if ((this.kinds & OccupantKind.BLOCKING) == 0) return BlockingReason.NOT;
+
         for (Entity e: this.occupants) {
             if (e instanceof StaticEntity && 
                 !((StaticEntity) e).isBlocking().equals(BlockingReason.NOT)) {
@@ -183,20 +231,19 @@ public class Cell {
     }
 
     /**
+     * Reads the value cached by the map (see DungeonMap.isBlocking)
      * @return true if there is a static element on the cell that is blocking
      */
     public boolean isBlocking() {
-        if (this.getBlocking().equals(BlockingReason.NOT)) {
-            return false;
-        } else {
-            return true;
-        }
+        return map.isBlocking(index);
     }
 
     /**
      * @return true if the floor switch on this cell has been triggered
      */
     public boolean hasDeactivatedFloorSwitch() {
+        if (!has(OccupantKind.FLOOR_SWITCH)) return false;
+
         for (Entity occupant: this.occupants) {
             if (occupant instanceof FloorSwitch && !((FloorSwitch) occupant).isActivated()) {
                 return true;
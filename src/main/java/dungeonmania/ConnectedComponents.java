@@ -0,0 +1,198 @@
+package dungeonmania;
+
+import java.util.Arrays;
+
+/**
+ * Labels the regions of a DungeonMap that are connected through cells that
+ * aren't blocking, so that findPath can tell right away that there is no
+ * path between two cells (instead of exploring everything it can reach).
+ *
+ * The map reports every cell whose blocking state changed (blockingChanged):
+ * <ul>
+ * <li>a cell that stops being blocking joins the regions around it, which
+ * are merged (union find on the labels), so nothing has to be recomputed;</li>
+ * <li>a cell that becomes blocking might cut its region in two. The labels
+ * are then recomputed, but only on the next query, so a tick with many
+ * changes costs at most one pass over the map.</li>
+ * </ul>
+ *
+ * The regions of the two portals of a pair (see GridGraph.getTeleport) are
+ * merged as well. Cells can then be labelled connected although the only way
+ * between them is cut by a portal (which moves whoever walks onto it away),
+ * so with portals canReach can say yes when there is no path, never the other
+ * way around.
+ */
+public class ConnectedComponents {
+
+    private static final int NONE = -1;
+
+    private DungeonMap map;
+    /**
+     * label of each cell, NONE for blocking cells. Two cells are connected if
+     * their labels have the same root (see find)
+     */
+    private int[] labels;
+    /**
+     * union find forest of the labels
+     */
+    private int[] parents = new int[16];
+    private int labelCount = 0;
+    private boolean valid = false;
+
+    private int[] queue = null;
+    private int[] neighbours = new int[4];
+
+    public ConnectedComponents(DungeonMap map) {
+        this.map = map;
+        this.labels = new int[map.getSize()];
+    }
+
+    /**
+     * Called by the map whenever a cell starts or stops being blocking
+     *
+     * @param index of the cell (see DungeonMap.toIndex)
+     */
+    public void blockingChanged(int index) {
+        if (!valid) return;
+
+        int count = map.getNeighbourIndices(index, neighbours);
+        if (map.isBlocking(index)) {
+            labels[index] = NONE;
+            // with a single open neighbour, nothing can be cut off
+            int open = 0;
+            for (int i = 0; i < count; i++) {
+                if (!map.isBlocking(neighbours[i])) open++;
+            }
+            if (open > 1) valid = false;
+            return;
+        }
+
+        int label = NONE;
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (map.isBlocking(n)) continue;
+            if (label == NONE) {
+                label = find(labels[n]);
+            } else {
+                union(label, labels[n]);
+            }
+        }
+        labels[index] = label == NONE ? newLabel() : label;
+
+        int pair = map.getTeleport(index);
+        if (pair != -1 && !map.isBlocking(pair)) union(labels[index], labels[pair]);
+    }
+
+    /**
+     * Called by the map whenever a portal is added, removed or paired. The
+     * labels are recomputed on the next query.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Same answer as checking whether DungeonMap.findPath(from, to) finds a
+     * path: the cell to start from can be blocking, the others can't.
+     *
+     * @param from index of the cell to start from
+     * @param to   index of the target cell
+     * @return true if there is a path from from to to
+     */
+    public boolean canReach(int from, int to) {
+        if (from == to) return true;
+        if (map.isBlocking(to)) return false;
+        update();
+
+        int target = find(labels[to]);
+        if (!map.isBlocking(from)) return find(labels[from]) == target;
+
+        int count = map.getNeighbourIndices(from, neighbours);
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (!map.isBlocking(n) && find(labels[n]) == target) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if the labels have to be recomputed before the next query
+     *         can be answered, which is a pass over the whole map
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @param index of the cell (see DungeonMap.toIndex)
+     * @return an id shared by all the cells connected to that one (only valid
+     *         until the next change), -1 for blocking cells
+     */
+    public int getComponent(int index) {
+        update();
+        return labels[index] == NONE ? NONE : find(labels[index]);
+    }
+
+    /**
+     * Recomputes all the labels if a cell became blocking since the last
+     * update
+     */
+    private void update() {
+        if (valid) return;
+        valid = true;
+        labelCount = 0;
+        Arrays.fill(labels, NONE);
+        if (queue == null) queue = new int[labels.length];
+
+        for (int start = 0; start < labels.length; start++) {
+            if (labels[start] != NONE || map.isBlocking(start)) continue;
+            int label = newLabel();
+            labels[start] = label;
+
+            // every cell is queued at most once
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            while (head < tail) {
+                int count = map.getNeighbourIndices(queue[head++], neighbours);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (labels[n] == NONE && !map.isBlocking(n)) {
+                        labels[n] = label;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+        }
+
+        if (!map.hasTeleports()) return;
+        for (int portal : map.getTeleportSources()) {
+            int pair = map.getTeleport(portal);
+            if (labels[portal] != NONE && labels[pair] != NONE) union(labels[portal], labels[pair]);
+        }
+    }
+
+    private int newLabel() {
+        if (labelCount == parents.length) parents = Arrays.copyOf(parents, labelCount * 2);
+        parents[labelCount] = labelCount;
+        return labelCount++;
+    }
+
+    private int find(int label) {
+        while (parents[label] != label) {
+            // path halving
+            parents[label] = parents[parents[label]];
+            label = parents[label];
+        }
+        return label;
+    }
+
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        // keep the smaller label as the root, so the roots don't depend on
+        // the order of the merges
+        if (a < b) parents[b] = a;
+        else if (b < a) parents[a] = b;
+    }
+}
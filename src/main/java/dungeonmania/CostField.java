@@ -0,0 +1,265 @@
+package dungeonmania;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import dungeonmania.util.BucketQueue;
+
+/**
+ * Cost of the cheapest path from every cell to the player, taking swamps into
+ * account. Shared by all the entities that chase the player, so that each of
+ * them picks its next step in constant time (see nextStep) instead of running
+ * its own search, unless there is a tie (see DungeonMap.stepTowardsPlayer).
+ *
+ * Costs are the same as the ones of findPath: walking onto a cell costs its
+ * travel cost, blocking cells can't be walked onto (but a path can start from
+ * one). The field is computed with a single Dijkstra from the player's cell
+ * (walking the edges backwards, with a BucketQueue as travel costs are small
+ * integers), started over only when the player moved or a cell changed.
+ *
+ * The search is lazy: it only goes as far as the cells that were asked for
+ * (see settle), and picks up where it stopped for the next one. Dijkstra
+ * settles the cells in the order of their costs, so a cell's next step is the
+ * same as with the whole field computed, whatever was asked before.
+ *
+ * Portals are followed the way findPath follows them (see
+ * GridGraph.getTeleport): the cost of a cell next to a portal can come from
+ * the cell the portal is paired with, and the next step can be a portal.
+ */
+public class CostField {
+
+    /**
+     * cost of the cells that can't reach the player
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private DungeonMap map;
+    /**
+     * allocated on the first update with a player. The cells the search didn't
+     * reach yet are UNREACHABLE
+     */
+    private int[] costs = null;
+    /**
+     * the cells whose cost is final
+     */
+    private BitSet settled = new BitSet();
+    /**
+     * the cells that have a cost, so that starting over only resets those
+     */
+    private int[] reached = new int[16];
+    private int reachedCount = 0;
+
+    /**
+     * index of the cell the costs are computed from, -1 if there was no player
+     */
+    private int source = -1;
+    private boolean valid = false;
+    /**
+     * cells expanded by the last settle
+     */
+    private int expanded = 0;
+    /**
+     * see getCheapestSteps
+     */
+    private int cheapestSteps = 0;
+
+    private int[] neighbours = new int[4];
+    private BucketQueue queue = null;
+
+    public CostField(DungeonMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Called by the map whenever the blocking state or the travel cost of a
+     * cell changes, or a portal is added, removed or paired
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Starts the search over if the player moved or something changed. Only
+     * the cells the last search reached are reset.
+     *
+     * @param player index of the player's cell, -1 if there is no player
+     */
+    public void update(int player) {
+        if (valid && player == source) return;
+        source = player;
+        valid = true;
+
+        for (int i = 0; i < reachedCount; i++) {
+            costs[reached[i]] = UNREACHABLE;
+            settled.clear(reached[i]);
+        }
+        reachedCount = 0;
+        if (player == -1) return;
+
+        if (costs == null) {
+            costs = new int[map.getSize()];
+            Arrays.fill(costs, UNREACHABLE);
+        }
+        // as many buckets as the highest travel cost on the map
+        int maxStep = map.getMaxTravelCost();
+        if (queue == null) queue = new BucketQueue(maxStep);
+        else queue.clear(maxStep);
+        reach(player, 0);
+    }
+
+    /**
+     * Searches further until the cost of the cell is final, or limit cells
+     * were expanded. The next call picks up from there.
+     *
+     * @param index of the cell (see DungeonMap.toIndex)
+     * @param limit the most cells to expand
+     * @return false if the limit was hit before the cost of the cell was final
+     */
+    public boolean settle(int index, int limit) {
+        expanded = 0;
+        if (source == -1) return true;
+
+        while (!settled.get(index) && !queue.isEmpty()) {
+            if (expanded == limit) return false;
+            int current = queue.poll();
+            int cost = queue.getKey();
+            if (cost > costs[current]) continue; // outdated entry
+            settled.set(current);
+            expanded++;
+
+            // the neighbours can only step onto current if it isn't blocking
+            if (map.isBlocking(current)) continue;
+
+            // stepping onto a portal ends on its pair: the neighbours of the
+            // portal paired with current get there through it, and the ones of
+            // current can't step onto it (unless the player is on it)
+            int pair = map.getTeleport(current);
+            if (pair == -1 || current == source) relax(current, cost + map.getTravelCost(current));
+            if (pair != -1 && pair != source && !map.isBlocking(pair)) {
+                relax(pair, cost + map.getTravelCost(pair));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of cells the last settle expanded
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Lowers the costs of the neighbours of a cell to newCost
+     */
+    private void relax(int index, int newCost) {
+        int count = map.getNeighbourIndices(index, neighbours);
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (newCost < costs[n]) reach(n, newCost);
+        }
+    }
+
+    private void reach(int index, int cost) {
+        if (costs[index] == UNREACHABLE) {
+            if (reachedCount == reached.length) reached = Arrays.copyOf(reached, reachedCount * 2);
+            reached[reachedCount++] = index;
+        }
+        costs[index] = cost;
+        queue.add(index, cost);
+    }
+
+    /**
+     * Settles the cell first (see settle)
+     *
+     * @param index of the cell (see DungeonMap.toIndex)
+     * @return the cost of the cheapest path from the cell to the player, as of
+     *         the last update, UNREACHABLE if there is none
+     */
+    public int get(int index) {
+        if (costs == null) return UNREACHABLE;
+        settle(index, Integer.MAX_VALUE);
+        return costs[index];
+    }
+
+    /**
+     * The first step of a cheapest path to the player. On ties, the first cell
+     * in the order UP, DOWN, LEFT, RIGHT is picked, which isn't always the one
+     * findPath would take: getCheapestSteps tells whether there was a tie.
+     * Settles the cell first (see settle).
+     *
+     * @param index of the cell to start from
+     * @return index of the next cell, index itself if it is the player's cell,
+     *         or -1 if the player can't be reached
+     */
+    public int nextStep(int index) {
+        cheapestSteps = 1;
+        if (index == source) return index;
+        int cost = get(index);
+        cheapestSteps = 0;
+        if (cost == UNREACHABLE) return -1;
+
+        // the cells a cheapest path goes through are cheaper than index, so
+        // they are settled. The others may not be, but their costs so far are
+        // at least index's, so they can't win
+        int best = -1;
+        int bestCost = UNREACHABLE;
+        int count = map.getNeighbourIndices(index, neighbours);
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (map.isBlocking(n)) continue;
+            int landing = n == source ? -1 : map.getTeleport(n);
+            if (landing == -1) landing = n;
+            else if (map.isBlocking(landing)) continue;
+            if (costs[landing] == UNREACHABLE) continue;
+            int stepCost = map.getTravelCost(n) + costs[landing];
+            if (stepCost < bestCost) {
+                best = n;
+                bestCost = stepCost;
+                cheapestSteps = 1;
+            } else if (stepCost == bestCost) {
+                cheapestSteps++;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of neighbours the last nextStep could have picked,
+     *         1 if it was the only one (or the player's cell), 0 if the player
+     *         can't be reached
+     */
+    public int getCheapestSteps() {
+        return cheapestSteps;
+    }
+
+    /**
+     * Follows nextStep from the cell to the player. Settles the cell first
+     * (see settle), the rest of the path is then settled already.
+     *
+     * @param index  of the cell to start from
+     * @param forced whether to stop before the first cell that has more than
+     *               one cheapest step (see getCheapestSteps)
+     * @return the indices of the cells of the path, from index to the
+     *         player's cell (or the cell it stopped on), with both ends of the
+     *         portals taken (like findPath), null if the player can't be
+     *         reached
+     */
+    public int[] pathFrom(int index, boolean forced) {
+        if (get(index) == UNREACHABLE) return null;
+        int[] path = new int[16];
+        int length = 0;
+        path[length++] = index;
+        int current = index;
+        while (current != source) {
+            int next = nextStep(current);
+            if (forced && cheapestSteps > 1) break;
+            int landing = next == source ? -1 : map.getTeleport(next);
+            if (length + 2 > path.length) path = Arrays.copyOf(path, path.length * 2);
+            path[length++] = next;
+            if (landing != -1) path[length++] = landing;
+            current = landing == -1 ? next : landing;
+        }
+        return Arrays.copyOf(path, length);
+    }
+}
@@ -0,0 +1,207 @@
+package dungeonmania;
+
+import java.util.Arrays;
+
+/**
+ * Distance (in steps) from the player to every cell of a DungeonMap, only
+ * computed again when something changed.
+ *
+ * The field only depends on the cell the player is on and on which cells are
+ * blocking. The map reports every cell whose blocking state changed, and every
+ * change of the portals (invalidate), and update() then:
+ * <ul>
+ * <li>does nothing if the player didn't move and nothing changed,</li>
+ * <li>starts a new breadth first search otherwise.</li>
+ * </ul>
+ *
+ * The search is lazy: update() only queues the player's cell, and get()
+ * carries on with the search until the cell asked for is reached. Entities
+ * only ask about the cells around them, so a move of the player or a change
+ * costs the region between the player and the farthest entity that asked, not
+ * the whole map (which would page in all of a static layer, see StaticLayer).
+ * Starting over costs as much as the last search explored. The distances
+ * aren't repaired around the changed cells instead: the search is seldom
+ * complete, and a repair needs all the distances.
+ *
+ * The values are always the same as the ones of a breadth first search from
+ * the player's cell: blocking cells are never entered (the player's cell is
+ * always expanded though), and cells that can't be reached (including blocking
+ * cells) have the maximum distance, which is the size of the map.
+ *
+ * With portals on the map, the distance of a cell is the number of steps
+ * from it to the player, walking onto a portal being one step to its pair
+ * (see GridGraph.getTeleport).
+ */
+public class DistanceField {
+
+    private DungeonMap map;
+    /**
+     * allocated on the first search
+     */
+    private int[] distances = null;
+    private int unreached;
+
+    /**
+     * index of the cell the distances were computed from, -1 if there was no
+     * player
+     */
+    private int source = -1;
+    /**
+     * false until the first search, and after the distances were set from
+     * outside
+     */
+    private boolean valid = false;
+    /**
+     * the search in progress: the cells in queue[head, tail) are reached but
+     * not expanded yet, the search is complete when head == tail
+     */
+    private int head = 0;
+    private int tail = 0;
+    /**
+     * true if the cells with a distance are exactly the ones in queue[0, tail),
+     * so that starting over only resets those (see clear)
+     */
+    private boolean tracked = true;
+
+    // allocated on first use
+    private int[] queue = null;
+    private int[] neighbours = new int[4];
+
+    public DistanceField(DungeonMap map) {
+        this.map = map;
+        this.unreached = map.getSize();
+    }
+
+    /**
+     * Searches further if the cell wasn't reached yet. Blocking cells are
+     * never reached (except the player's), so they don't search.
+     *
+     * @param index of the cell (see DungeonMap.toIndex)
+     * @return the distance between the player and the cell, as of the last
+     *         update
+     */
+    public int get(int index) {
+        if (distances == null) return unreached;
+        if (distances[index] == unreached && head < tail && !map.isBlocking(index)) expand(index);
+        return distances[index];
+    }
+
+    /**
+     * Overrides a distance. The next update recomputes everything.
+     *
+     * @param index    of the cell (see DungeonMap.toIndex)
+     * @param distance between the player and the cell
+     */
+    public void set(int index, int distance) {
+        allocate();
+        distances[index] = distance;
+        tracked = false;
+        valid = false;
+    }
+
+    /**
+     * Sets all the distances to the maximum and the one of the player's cell to
+     * 0, without exploring anything. The next update recomputes everything.
+     *
+     * @param player index of the player's cell, -1 if there is no player
+     */
+    public void reset(int player) {
+        clear();
+        if (player != -1) {
+            allocate();
+            distances[player] = 0;
+            queue[tail++] = player;
+            head = tail;
+        }
+        valid = false;
+    }
+
+    /**
+     * Sets all the distances to the maximum, the search is over
+     */
+    private void clear() {
+        if (distances == null) return;
+        if (tracked) {
+            for (int i = 0; i < tail; i++) {
+                distances[queue[i]] = unreached;
+            }
+        } else {
+            Arrays.fill(distances, unreached);
+        }
+        head = 0;
+        tail = 0;
+        tracked = true;
+    }
+
+    private void allocate() {
+        if (distances != null) return;
+        distances = new int[unreached];
+        Arrays.fill(distances, unreached);
+        queue = new int[unreached];
+    }
+
+    /**
+     * Called by the map whenever a cell starts or stops being blocking, or a
+     * portal is added, removed or paired. The next update recomputes
+     * everything.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Brings the distances up to date
+     *
+     * @param player index of the player's cell, -1 if there is no player
+     */
+    public void update(int player) {
+        if (valid && player == source) return;
+        restart(player);
+    }
+
+    /**
+     * Starts a breadth first search from the player's cell, see expand
+     */
+    private void restart(int player) {
+        reset(player);
+        source = player;
+        valid = true;
+        head = 0;
+    }
+
+    /**
+     * Carries on with the breadth first search until the cell is reached or
+     * there is nothing left to expand. A cell's distance is final as soon as
+     * it is reached.
+     */
+    private void expand(int target) {
+        // every cell is queued at most once, so the queue never wraps
+        while (head < tail && distances[target] == unreached) {
+            int index = queue[head++];
+            int next = distances[index] + 1;
+
+            // see CostField.update, the neighbours of a portal reach its pair
+            // in one step, and the player only through the portal it's on
+            int pair = map.getTeleport(index);
+            if (pair == -1 || index == source) visitNeighbours(index, next);
+            if (pair != -1 && pair != source && !map.isBlocking(pair) && !map.isBlocking(index)) {
+                visitNeighbours(pair, next);
+            }
+        }
+    }
+
+    /**
+     * Sets the distance of the neighbours of index that weren't reached yet
+     * and queues them
+     */
+    private void visitNeighbours(int index, int distance) {
+        int count = map.getNeighbourIndices(index, neighbours);
+        for (int i = 0; i < count; i++) {
+            int neighbour = neighbours[i];
+            if (distances[neighbour] == unreached && !map.isBlocking(neighbour)) {
+                distances[neighbour] = distance;
+                queue[tail++] = neighbour;
+            }
+        }
+    }
+}
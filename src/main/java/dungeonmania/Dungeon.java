@@ -55,6 +55,7 @@ import dungeonmania.entities.statics.ZombieToastSpawner;
 import dungeonmania.exceptions.InvalidActionException;
 import dungeonmania.goal.ExitGoal;
 import dungeonmania.goal.Goal;
+import dungeonmania.movement.MovementBehaviour;
 import dungeonmania.response.models.EntityResponse;
 import dungeonmania.response.models.ItemResponse;
 import dungeonmania.util.Direction;
@@ -127,12 +128,27 @@ public class Dungeon {
      * Creates a Dungeon instance from the JSON file's content
      */
     public static Dungeon fromJSONObject(Random random, String name, GameMode mode, JSONObject obj) {
+        return fromJSONObject(random, name, mode, obj, null);
+    }
+
+    /**
+     * Creates a Dungeon instance from the JSON file's content, with its static
+     * entities stored in a static layer (see StaticLayer.write). The static
+     * entities listed in the JSON are ignored, the ones of the layer are only
+     * created when their cell is first used.
+     * 
+     * @param layer null to load everything from the JSON
+     */
+    public static Dungeon fromJSONObject(Random random, String name, GameMode mode, JSONObject obj, StaticLayer layer) {
 
         Goal goal = Goal.fromJSONObject(obj);
 
         DungeonMap map = new DungeonMap(obj);
 
         Dungeon dungeon = new Dungeon(random, name, mode, map, goal);
+        if (layer != null) {
+            map.setStaticLayer(layer, dungeon);
+        }
 
         JSONArray entities = obj.getJSONArray("entities");
         Player player = null;
@@ -142,6 +158,7 @@ public class Dungeon {
             int x = entity.getInt("x");
             int y = entity.getInt("y");
             String type = entity.getString("type");
+            if (layer != null && StaticLayer.handles(type)) continue;
 
             Cell cell = map.getCell(x, y);
             if (Objects.equals(type, Wall.STRING_TYPE)) {
@@ -235,13 +252,10 @@ public class Dungeon {
         map.setEntry(player.getPosition());
         dungeon.setPlayer(player);
 
-        dungeon.hadEnemiesAtStartOfDungeon = map.allEntities().stream()
-                .filter(e -> e instanceof MovingEntity && !(e instanceof Player)).count() > 0;
+        dungeon.hadEnemiesAtStartOfDungeon = map.countEntities(MovingEntity.class) > map.countEntities(Player.class);
 
-        map.allEntities()
-           .stream()
-           .filter(e -> e instanceof LogicalEntity)
-           .forEach(o -> ((LogicalEntity) o).addConnectedEntities(o.getCell(), ((LogicalEntity) o).getConnectedEntityIds()));
+        map.getEntities(LogicalEntity.class)
+           .forEach(o -> o.addConnectedEntities(o.getCell(), o.getConnectedEntityIds()));
 
         return dungeon;
     }
@@ -264,8 +278,15 @@ public class Dungeon {
     }
     
     public static Dungeon generateDungeon(Random r, Pos2d start, Pos2d end, GameMode mode) {
+        return generateDungeon(r, start, end, mode, new Pos2d(50, 50));
+    }
 
-        Pos2d dims = new Pos2d(50, 50);
+    /**
+     * Same as generateDungeon(r, start, end, mode), with a maze of any size
+     * @param dims width and height of the maze
+     * @return the generated dungeon
+     */
+    public static Dungeon generateDungeon(Random r, Pos2d start, Pos2d end, GameMode mode, Pos2d dims) {
         List<List<BCell>> maze = GenerateMaze.make(r, dims, start, end);
 
         DungeonMap map = new DungeonMap(dims.getX(), dims.getY());
@@ -279,7 +300,7 @@ public class Dungeon {
         for (int y = 0; y < dims.getY(); y++) {
             for (int x = 0; x < dims.getX(); x++) {
                 if (maze.get(y).get(x) == BCell.WALL) {
-                    map.getCell(x, y).addOccupant(new Wall(dungeon, new Pos2d(x, y)));
+                    map.getCell(x, y).addOccupant(new Wall(dungeon, map.getPosition(x, y)));
                 }
             }
         }
@@ -379,6 +400,22 @@ public class Dungeon {
         return this.player;
     }
 
+    /**
+     * Looks for the entity on the map, and then in the player's inventory.
+     * Both are hash lookups, so this doesn't depend on the size of the
+     * dungeon.
+     * 
+     * @param entityId
+     * @return the entity with that id, or null if it isn't in the dungeon
+     */
+    public Entity findEntity(String entityId) {
+        Entity entity = this.dungeonMap.getEntity(entityId);
+        if (entity == null && this.player != null) {
+            entity = this.player.getInventory().get(entityId);
+        }
+        return entity;
+    }
+
     /**
      * "Ticks" all the components of the dungeon.
      * @param itemUsed
@@ -395,11 +432,8 @@ public class Dungeon {
 
         assert this.battleStrategies.size() > 0;
         this.tickCount++;
+        dungeonMap.startTick();
 
-        // PROBLEM: if we call tick as we iterate through the cells' entities
-        // certain entities could get updated twice if they move down or left
-        // SOLUTION: make a list of all the entities on the dungeonMap
-        // and *only* then call tick on them all
         this.player.handleMoveOrder(movementDirection);
 
         dungeonMap.flood();
@@ -416,7 +450,13 @@ public class Dungeon {
             if (!pot.isActive())
                 activePotions.remove(pot);
         });
-        dungeonMap.allEntities().stream().filter(e -> !(e instanceof Potion)).forEach(entity -> entity.tick());
+        planMoves();
+        // PROBLEM: if we call tick as we iterate through the cells' entities
+        // certain entities could get updated twice if they move down or left
+        // SOLUTION: make a list of the entities to tick (only the ones whose
+        // tick does something, see DungeonMap.getTickedEntities) and *only*
+        // then call tick on them all
+        dungeonMap.getTickedEntities().forEach(entity -> entity.tick());
 
         // Dealing With Picking Up or Placing Collectable Entities
         pickupCollectableEntities(itemUsed);
@@ -429,6 +469,22 @@ public class Dungeon {
         this.battleStrategies.peek().findAndPerformBattles(this);
     }
 
+    /**
+     * Plan phase of the moves, see DungeonMap.planSteps. The entities then
+     * move (apply phase) when they tick, in the usual order.
+     */
+    private void planMoves() {
+        if (dungeonMap.getSearchParallelism() == 0) return;
+
+        List<Cell> from = new ArrayList<>();
+        for (MovingEntity entity : dungeonMap.getEntities(MovingEntity.class)) {
+            MovementBehaviour behaviour = entity.getCurrentMovementBehaviour();
+            if (behaviour == null || behaviour.getSearchCache() == null) continue;
+            from.add(entity.getCell());
+        }
+        dungeonMap.planSteps(from);
+    }
+
     /**
      * Attempts to build the specified item
      * @param buildable, string name of the item being built 
@@ -494,13 +550,13 @@ public class Dungeon {
     public List<EntityResponse> getEntitiesResponse() {
         ArrayList<EntityResponse> entities = new ArrayList<>();
 
-        for (int y = 0; y < this.dungeonMap.getHeight(); y++) {
-            for (int x = 0; x < this.dungeonMap.getWidth(); x++) {
-                Cell cell = this.dungeonMap.getCell(x, y);
-                for (Entity entity : cell.getOccupants()) {
-                    entities.add(new EntityResponse(entity.getId(), entity.getTypeAsString(),
-                            new Position(x, y, entity.getLayerLevel().getValue()), entity.isInteractable()));
-                }
+        int width = this.dungeonMap.getWidth();
+        for (Cell cell : this.dungeonMap.getCells()) {
+            int x = cell.getIndex() % width;
+            int y = cell.getIndex() / width;
+            for (Entity entity : cell.getOccupants()) {
+                entities.add(new EntityResponse(entity.getId(), entity.getTypeAsString(),
+                        new Position(x, y, entity.getLayerLevel().getValue()), entity.isInteractable()));
             }
         }
         return entities;
@@ -508,16 +564,7 @@ public class Dungeon {
 
     // Check if a portal exists on the map with a specified colour
     public static Portal existsPortal(String colour, DungeonMap map) {
-        for (int y = 0; y < map.getHeight(); y++) {
-            for (int x = 0; x < map.getWidth(); x++) {
-                Cell cell = map.getCell(x, y);
-                Portal portal = cell.hasPortal();
-                if (portal != null && portal.getColour().equals(colour)) {
-                    return portal;
-                }
-            }
-        }
-        return null;
+        return map.getPortal(colour);
     }
 
     public GameMode getGameMode() {
@@ -642,7 +689,7 @@ public class Dungeon {
      * helper function that is called once per tick
      */
     private void spawnSpiders() {
-        long spiderPopulation = this.dungeonMap.allEntities().stream().filter(e -> e instanceof Spider).count();
+        int spiderPopulation = this.dungeonMap.countEntities(Spider.class);
 
         if (spiderPopulation < Spider.MAX_SPIDERS && (this.tickCount % Spider.SPAWN_EVERY_N_TICKS == 0)) {
             Cell c = Spider.getRandomPosition(this);
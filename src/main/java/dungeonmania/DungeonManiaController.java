@@ -194,9 +194,7 @@ public class DungeonManiaController {
      * @throws InvalidActionException
      */
     public DungeonResponse interact(String entityId) throws IllegalArgumentException, InvalidActionException {
-        Entity interactEntity = dungeon.getMap()
-            .allEntities().stream().filter(e -> e.getId().equals(entityId))
-            .findFirst().orElse(null);
+        Entity interactEntity = dungeon.findEntity(entityId);
 
         if (interactEntity == null)
             throw new IllegalArgumentException("entityId does not exist");
@@ -2,11 +2,19 @@ package dungeonmania;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -15,34 +23,189 @@ import org.json.JSONObject;
 import dungeonmania.entities.Fighter;
 import dungeonmania.entities.Fighter.FighterRelation;
 import dungeonmania.entities.MovingEntity;
-import dungeonmania.entities.StaticEntity;
 import dungeonmania.entities.collectables.Treasure;
-import dungeonmania.entities.movings.Mercenary;
 import dungeonmania.entities.movings.Player;
-import dungeonmania.entities.movings.Spider;
 import dungeonmania.entities.movings.ZombieToast;
-import dungeonmania.entities.statics.Wall;
+import dungeonmania.entities.statics.Portal;
+import dungeonmania.entities.statics.Swamp;
 import dungeonmania.entities.statics.ZombieToastSpawner;
+import dungeonmania.util.BlockingReason;
 import dungeonmania.util.Direction;
-import dungeonmania.util.Graph;
-import dungeonmania.util.Vertex;
+import dungeonmania.util.GridGraph;
+import dungeonmania.util.HierarchicalPathFinder;
+import dungeonmania.util.Landmarks;
+import dungeonmania.util.PathFinder;
 
 /**
  * Represents the map of the dungeon.
  * Stores each square of the map as a "Cell" class.
  */
-public class DungeonMap {
+public class DungeonMap implements GridGraph {
 
     final private String PLAYER = " P ";
     final private String WALL = "###";
     final private String STATIC = " S ";
     final private String ENEMY = " E ";
 
-    private List<List<Cell>> dungeonMap = new ArrayList<>();
+    /**
+     * number of cells from which stepTowardsPlayer searches hierarchically
+     */
+    public static final int HIERARCHICAL_MIN_SIZE = 128 * 128;
+
+    /**
+     * see setSearchBudget
+     */
+    public static final int UNLIMITED_SEARCH_BUDGET = Integer.MAX_VALUE;
+
+    /**
+     * planned path of a follower whose search didn't fit in the budget (see
+     * planSteps)
+     */
+    private static final int[] DEFERRED_PATH = new int[0];
+
+    /**
+     * chunks are CHUNK_SIZE x CHUNK_SIZE squares of cells
+     */
+    private static final int CHUNK_BITS = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * the cells of the map, split into chunks. Chunks are stored row after row
+     * ({@code cy * chunksX + cx}) and so are the cells within a chunk.
+     * 
+     * Both the chunks and the cells in them are only created the first time
+     * they are asked for (see getCellByIndex), so a huge map that is mostly
+     * empty only costs the cells that are actually used. A null cell is an
+     * empty square.
+     * 
+     * Cells are still identified by their index on the whole map,
+     * {@code y * width + x} (see toIndex).
+     */
+    private Cell[][] chunks;
+    /**
+     * interned positions of the squares of the map, stored like the cells (see
+     * getPosition)
+     */
+    private Pos2d[][] positionChunks;
+    private int chunksX;
+    /**
+     * distance from the player for each cell, by index (see toIndex)
+     */
+    private DistanceField playerDistances;
+    /**
+     * cost of the cheapest path to the player for each cell, computed when a
+     * follower first needs it (see stepTowardsPlayer)
+     */
+    private CostField playerCosts;
+    /**
+     * used by findPath, created on the first search
+     */
+    private PathFinder pathFinder = null;
+    /**
+     * see getFollowerPathFinder
+     */
+    private PathFinder followerPathFinder = null;
+    /**
+     * for the ALT algorithm of the path finder, see setLandmarkCount
+     */
+    private Landmarks landmarks = null;
+    /**
+     * used by findPath to skip searches that can't succeed, created on the
+     * first search
+     */
+    private ConnectedComponents components = null;
+    /**
+     * used by stepTowardsPlayer on big maps, created on the first step
+     */
+    private HierarchicalPathFinder hierarchicalPathFinder = null;
+    /**
+     * see getBlockingVersion
+     */
+    private int blockingVersion = 0;
+    private long pathCacheHits = 0;
+    private long pathCacheMisses = 0;
+    /**
+     * see setSearchBudget
+     */
+    private int searchBudget = UNLIMITED_SEARCH_BUDGET;
+    private int budgetLeft = UNLIMITED_SEARCH_BUDGET;
+    private long deferredSearches = 0;
+    /**
+     * see planSteps, the pool and the queries are created on the first plan
+     * that runs on more than one thread
+     */
+    private int searchParallelism = 0;
+    private ForkJoinPool searchPool = null;
+    private HierarchicalPathFinder.Query[] plannedQueries = null;
+    /**
+     * paths found by the last planSteps, by index of the cell they start
+     * from (null if there is no path). Only the first step is searched for,
+     * the path is the start and that step
+     */
+    private Map<Integer, int[]> plannedPaths = new HashMap<>();
+    private int plannedVersion = -1;
+    private int plannedTarget = -1;
+    private long plannedSteps = 0;
+    /**
+     * number of plans so far, the followers take turns being searched for
+     * first (see planSteps)
+     */
+    private int planCount = 0;
+    /**
+     * index of the cell each portal leads to, -1 for the other cells, null if
+     * there are no paired portals. Cached, see getTeleport
+     */
+    private int[] teleports = null;
+    private int[] teleportSources = new int[0];
+    private boolean teleportsValid = false;
+    /**
+     * bit i is set if the cell at index i is blocking. Cached, see refreshCell.
+     * Only grows up to the last blocking cell.
+     */
+    private BitSet blocking = new BitSet();
+    /**
+     * cost to walk onto the cell at index i (1, or the swamp's movement factor). Cached,
+     * see refreshCell. Null as long as all the cells cost 1
+     */
+    private byte[] travelCosts = null;
+    /**
+     * with a static layer, the cached blocking state and travel cost of the
+     * cells that were created, stored like the cells (see getCellByIndex) and
+     * allocated along with their chunk. The two arrays above aren't used then,
+     * so nothing is allocated for the squares that were never used.
+     */
+    private long[][] chunkBlocking = null;
+    private byte[][] chunkTravelCosts = null;
+    /**
+     * number of cells for each travel cost, see getMinTravelCost
+     */
+    private int[] travelCostCounts = new int[256];
     private int width;
     private int height;
 
     private Pos2d entry = null;
+
+    /**
+     * optional, the static entities of the squares whose cell wasn't created
+     * yet (see setStaticLayer)
+     */
+    private StaticLayer staticLayer = null;
+    private Dungeon staticLayerDungeon = null;
+
+    private EntityRegistry registry = new EntityRegistry();
+    /**
+     * the entities on the map whose tick does something, see
+     * getTickedEntities
+     */
+    private Set<Entity> tickedEntities = new LinkedHashSet<>();
+
+    /**
+     * the cell the player is on (null if the player isn't on the map). Kept up
+     * to date by onOccupantAdded and onOccupantRemoved, which covers normal
+     * moves, teleports and respawns since they all go through the cells.
+     */
+    private Cell playerCell = null;
     
     public DungeonMap(JSONObject json) {
         this(json.getInt("width"), json.getInt("height"));
@@ -51,14 +214,12 @@ public class DungeonMap {
     public DungeonMap(int width, int height) {
         this.width = width;
         this.height = height;
-        // a grid of empty cells
-        for (int y = 0; y < height; y++) {
-            ArrayList<Cell> row = new ArrayList<>();
-            for (int x = 0; x < width; x++) {
-                row.add(new Cell(new Pos2d(x, y)));
-            }
-            dungeonMap.add(row);
-        }
+        this.chunksX = (width + CHUNK_MASK) >> CHUNK_BITS;
+        this.chunks = new Cell[chunksX * ((height + CHUNK_MASK) >> CHUNK_BITS)][];
+        this.positionChunks = new Pos2d[chunks.length][];
+        travelCostCounts[1] = width * height;
+        this.playerDistances = new DistanceField(this);
+        this.playerCosts = new CostField(this);
         resetDistances();
     }
 
@@ -66,15 +227,7 @@ public class DungeonMap {
      * Counts all the treasure remaining on the map
      */
     public Integer countTreasure() {
-        int count = 0;
-        for (List<Cell> row : dungeonMap) {
-            for (Cell cell : row) {
-                if (cell.getOccupants().stream().anyMatch(e -> e instanceof Treasure)) {
-                    count++;
-                } 
-            }
-        }
-        return count;
+        return registry.count(Treasure.class);
     }
 
     /**
@@ -82,11 +235,9 @@ public class DungeonMap {
      * @return true if all floor switches on the map have been triggered.
      */
     public boolean allFloorSwitchesTriggered()  {
-        for (List<Cell> row : dungeonMap) {
-            for (Cell cell : row) {
-                if (cell.hasDeactivatedFloorSwitch()) {
-                    return false;
-                } 
+        for (Cell cell : getCells()) {
+            if (cell.hasDeactivatedFloorSwitch()) {
+                return false;
             }
         }
         return true;
@@ -97,8 +248,8 @@ public class DungeonMap {
      * @return
      */
     public Integer countEnemies() {
-        int movingEnemyCount = (int) allEntities().stream().filter(e -> e instanceof MovingEntity && 
-                                    ((Fighter) e).getFighterRelation() == FighterRelation.ENEMY).count();
+        int movingEnemyCount = (int) registry.entitiesOf(MovingEntity.class).stream()
+                                    .filter(e -> ((Fighter) e).getFighterRelation() == FighterRelation.ENEMY).count();
         int enemyStructureCount = countSpawners();
     
         return movingEnemyCount + enemyStructureCount;
@@ -109,29 +260,127 @@ public class DungeonMap {
      * Counts all cells with spawners remaining on the map
      */
     public Integer countSpawners() {
-        return (int) allEntities().stream().filter(e -> e instanceof ZombieToastSpawner).count();
+        return registry.count(ZombieToastSpawner.class);
     }
 
     /**
      * Counts number of zombies remaining on the map
      */
     public Integer countZombieToasts() {
-        return (int) allEntities().stream().filter(e -> e instanceof ZombieToast).count();
+        return registry.count(ZombieToast.class);
+    }
+
+    /**
+     * @param id of the entity
+     * @return the entity on the map with that id, or null if there is none
+     */
+    public Entity getEntity(String id) {
+        return registry.get(id);
+    }
+
+    /**
+     * @param type class or interface
+     * @return number of entities on the map that are instances of type
+     */
+    public int countEntities(Class<?> type) {
+        return registry.count(type);
+    }
+
+    /**
+     * Doesn't look at every cell, see EntityRegistry. The returned collection
+     * is a live view, copy it if you are going to add or remove entities from
+     * the map while iterating.
+     * 
+     * @param <T>  type
+     * @param type class or interface
+     * @return the entities on the map that are instances of type
+     */
+    public <T> Collection<T> getEntities(Class<T> type) {
+        return registry.entitiesOf(type);
+    }
+
+    /**
+     * @see getEntities(Class)
+     * @param type as returned by Entity.getTypeAsString
+     * @return the entities on the map with the given type string
+     */
+    public Collection<Entity> getEntities(String type) {
+        return registry.entitiesOf(type);
+    }
+
+    /**
+     * Portals are indexed by colour (through their type string), so this
+     * doesn't look at the cells.
+     * 
+     * @param colour
+     * @return the first portal of that colour that was placed on the map, or
+     *         null if there is none
+     */
+    public Portal getPortal(String colour) {
+        if (staticLayer != null) {
+            // make sure the portals of the static layer are on the map
+            for (int index : staticLayer.getPortals(colour)) getCellByIndex(index);
+        }
+        for (Entity e : registry.entitiesOf(Portal.typeOf(colour))) {
+            return (Portal) e;
+        }
+        return null;
+    }
+
+    /**
+     * Called by the cell whenever an entity is added to it
+     */
+    void onOccupantAdded(Cell cell, Entity e) {
+        registry.add(e);
+        if (e.isTicked()) tickedEntities.add(e);
+        refreshCell(cell);
+        if (e instanceof Player) playerCell = cell;
+        if (e instanceof Portal) portalsChanged();
+    }
+
+    /**
+     * Called by the cell whenever an entity is removed from it
+     */
+    void onOccupantRemoved(Cell cell, Entity e) {
+        registry.remove(e);
+        tickedEntities.remove(e);
+        refreshCell(cell);
+        if (e instanceof Player && playerCell == cell) playerCell = null;
+        if (e instanceof Portal) portalsChanged();
+    }
+
+    /**
+     * Called by the cell whenever one of its occupants changed state
+     */
+    void onOccupantChanged(Cell cell, Entity e) {
+        registry.refresh(e);
+        refreshCell(cell);
+        if (e instanceof Portal) portalsChanged();
     }
 
     /**
      * Sets all player distances to the maximum and sets the cell with the player to 0.
      */
     private void resetDistances() {
-        for (List<Cell> row : dungeonMap) {
-            for (Cell cell : row) {
-                if (cell.getOccupants().stream().anyMatch(e -> e instanceof Player)) {
-                    cell.setPlayerDistance(0);
-                } else {
-                    cell.setPlayerDistance(width * height);
-                }
-            }
-        }
+        playerDistances.reset(playerCell == null ? -1 : playerCell.getIndex());
+    }
+
+    /**
+     * @param index of the cell (see toIndex)
+     * @return the distance between the player and the cell, from where the
+     *         player was at the last flood() (the search goes on as far as
+     *         needed, see DistanceField)
+     */
+    public int getPlayerDistance(int index) {
+        return playerDistances.get(index);
+    }
+
+    /**
+     * @param index of the cell (see toIndex)
+     * @param distance between the player and the cell
+     */
+    public void setPlayerDistance(int index, int distance) {
+        playerDistances.set(index, distance);
     }
     
     /**
@@ -147,14 +396,33 @@ public class DungeonMap {
      */
     public List<Entity> allEntities() {
         List<Entity> all = new ArrayList<Entity>();
-        for (List<Cell> row : dungeonMap) {
-            for (Cell cell : row) {
-                all.addAll(cell.getOccupants());
-            }
+        for (Cell cell : getCells()) {
+            all.addAll(cell.getOccupants());
         }
         return all;
     }
 
+    /**
+     * The entities to tick (see Entity.isTicked): moving entities other than
+     * the player, spawners and logical entities. They are tracked as they are
+     * added to and removed from the cells, so this doesn't look at the other
+     * entities or at the cells, and costs as much as there are entities to
+     * tick.
+     * 
+     * @return a new list of those entities, in the order of allEntities():
+     *         cell after cell, and in the order they were added to their cell
+     */
+    public List<Entity> getTickedEntities() {
+        Map<Entity, Long> order = new HashMap<>();
+        for (Entity e : tickedEntities) {
+            Cell cell = e.getCell();
+            order.put(e, ((long) cell.getIndex() << 32) | cell.getOccupants().indexOf(e));
+        }
+        List<Entity> entities = new ArrayList<>(order.keySet());
+        entities.sort(Comparator.comparingLong(order::get));
+        return entities;
+    }
+
     /**
      * @return the Cell that represents the given position
      */
@@ -162,23 +430,436 @@ public class DungeonMap {
         if (y < 0 || y >= height) return null;
         if (x < 0 || x >= width) return null;
 
-        return dungeonMap.get(y).get(x);
+        return getCellByIndex(y * width + x);
     }
 
     /**
-     * Retreives Cell Player is Currently In
-     * @return Cell
+     * Creates the cell (and its chunk) if that square was never used before.
+     * 
+     * @param index of the cell, (see toIndex)
+     * @return the Cell stored at that index
      */
-    public Cell getPlayerCell() {
-        for (List<Cell> row : dungeonMap) {
-            for (Cell cell : row) {
-                //Checks Where Cell is 0 blocks from player
-                if (cell.hasPlayer()) {
-                    return cell;
-                }
+    public Cell getCellByIndex(int index) {
+        int x = index % width;
+        int y = index / width;
+        int chunk = (y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS);
+        int offset = ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+
+        Cell[] cells = chunks[chunk];
+        if (cells == null) {
+            cells = new Cell[CHUNK_SIZE * CHUNK_SIZE];
+            chunks[chunk] = cells;
+            if (staticLayer != null) allocateChunkCaches(chunk);
+        }
+        Cell cell = cells[offset];
+        if (cell == null) {
+            cell = new Cell(this, index, getPosition(x, y));
+            cells[offset] = cell;
+            if (staticLayer != null) {
+                // from now on the cached values are used, start from the ones
+                // of the layer
+                setChunkValues(index, staticLayer.isBlocking(index), staticLayer.getTravelCost(index));
+                staticLayer.populate(this, cell, staticLayerDungeon);
             }
         }
-        return null;
+        return cell;
+    }
+
+    private void allocateChunkCaches(int chunk) {
+        chunkBlocking[chunk] = new long[CHUNK_SIZE * CHUNK_SIZE / 64];
+        chunkTravelCosts[chunk] = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        Arrays.fill(chunkTravelCosts[chunk], (byte) 1);
+    }
+
+    /**
+     * Positions are interned: for a given (x, y), this always returns the same
+     * instance, which is also the one of the cell at (x, y).
+     * 
+     * @param x
+     * @param y
+     * @return the position (x, y), or null if it is off the map
+     */
+    public Pos2d getPosition(int x, int y) {
+        if (y < 0 || y >= height) return null;
+        if (x < 0 || x >= width) return null;
+
+        int chunk = (y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS);
+        int offset = ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+
+        Pos2d[] positions = positionChunks[chunk];
+        if (positions == null) {
+            positions = new Pos2d[CHUNK_SIZE * CHUNK_SIZE];
+            positionChunks[chunk] = positions;
+        }
+        Pos2d pos = positions[offset];
+        if (pos == null) {
+            pos = new Pos2d(x, y);
+            positions[offset] = pos;
+        }
+        return pos;
+    }
+
+    /**
+     * Doesn't create anything, see getCellByIndex
+     * 
+     * @param index of the cell, (see toIndex)
+     * @return the Cell stored at that index, or null if that square was never
+     *         used (it is empty)
+     */
+    private Cell peekCell(int index) {
+        int x = index % width;
+        int y = index / width;
+        Cell[] cells = chunks[(y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS)];
+        if (cells == null) return null;
+        return cells[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)];
+    }
+
+    /**
+     * @param from index to start looking from
+     * @return the smallest index >= from whose cell was created, or -1 if there
+     *         is none. Skips over the chunks that were never used.
+     */
+    private int nextCellIndex(int from) {
+        int size = width * height;
+        int index = from;
+        while (index < size) {
+            int x = index % width;
+            int y = index / width;
+            Cell[] cells = chunks[(y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS)];
+            if (cells == null) {
+                // jump to the start of the next chunk on this row
+                int next = Math.min((x | CHUNK_MASK) + 1, width);
+                index += next - x;
+                continue;
+            }
+            if (cells[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)] != null) return index;
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Only goes through the cells that were created, empty squares that were
+     * never used are skipped.
+     * 
+     * @return the cells of the map, row after row
+     */
+    public Iterable<Cell> getCells() {
+        return () -> new Iterator<Cell>() {
+            private int next = nextCellIndex(0);
+
+            @Override
+            public boolean hasNext() {
+                return next != -1;
+            }
+
+            @Override
+            public Cell next() {
+                if (next == -1) throw new NoSuchElementException();
+                Cell cell = peekCell(next);
+                next = nextCellIndex(next + 1);
+                return cell;
+            }
+        };
+    }
+
+    /**
+     * Cells are stored row after row, so the index of (x, y) is
+     * {@code y * width + x}.
+     * 
+     * @pre (x, y) is on the map
+     * @return the index of the cell at (x, y)
+     */
+    public int toIndex(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * @return the number of cells on the map (all indices are smaller than that)
+     */
+    public int getSize() {
+        return width * height;
+    }
+
+    /**
+     * Direction.NONE returns the given index
+     * 
+     * @param index of the cell (see toIndex)
+     * @param d direction
+     * @return the index of the cell above, below, left or right of index, or -1
+     *         if that is off the map
+     */
+    public int getNeighbourIndex(int index, Direction d) {
+        switch (d) {
+        case UP:
+            return index < width ? -1 : index - width;
+        case DOWN:
+            return index >= width * height - width ? -1 : index + width;
+        case LEFT:
+            return index % width == 0 ? -1 : index - 1;
+        case RIGHT:
+            return index % width == width - 1 ? -1 : index + 1;
+        default:
+            return index;
+        }
+    }
+
+    /**
+     * Reads the cached value, doesn't look at the occupants.
+     * @param index of the cell (see toIndex)
+     * @return true if the cell is blocking
+     */
+    public boolean isBlocking(int index) {
+        if (staticLayer == null) return blocking.get(index);
+
+        int x = index % width;
+        int y = index / width;
+        int chunk = (y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS);
+        int offset = ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+        Cell[] cells = chunks[chunk];
+        if (cells == null || cells[offset] == null) return staticLayer.isBlocking(index);
+        return (chunkBlocking[chunk][offset >> 6] & (1L << offset)) != 0;
+    }
+
+    /**
+     * Reads the cached value, doesn't look at the occupants.
+     * @param index of the cell (see toIndex)
+     * @return the cost to walk onto the cell
+     */
+    public int getTravelCost(int index) {
+        if (staticLayer == null) return travelCosts == null ? 1 : travelCosts[index] & 0xFF;
+
+        int x = index % width;
+        int y = index / width;
+        int chunk = (y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS);
+        int offset = ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+        Cell[] cells = chunks[chunk];
+        if (cells == null || cells[offset] == null) return staticLayer.getTravelCost(index);
+        return chunkTravelCosts[chunk][offset] & 0xFF;
+    }
+
+    /**
+     * @return the lowest travel cost of all the cells (0 if there is a swamp
+     *         with a movement factor of 0)
+     */
+    public int getMinTravelCost() {
+        for (int cost = 0; cost < travelCostCounts.length; cost++) {
+            if (travelCostCounts[cost] > 0) return cost;
+        }
+        return 1;
+    }
+
+    /**
+     * @return the highest travel cost of all the cells
+     */
+    public int getMaxTravelCost() {
+        for (int cost = travelCostCounts.length - 1; cost > 0; cost--) {
+            if (travelCostCounts[cost] > 0) return cost;
+        }
+        return 1;
+    }
+
+    /**
+     * Recomputes the cached blocking state and travel cost of a cell. Called
+     * whenever the occupants of that cell (or their state) change.
+     * 
+     * Travel costs are stored on a byte, movement factors above 255 are
+     * capped.
+     * 
+     * @param cell
+     */
+    private void refreshCell(Cell cell) {
+        int index = cell.getIndex();
+        boolean isBlocking = cell.getBlocking() != BlockingReason.NOT;
+        if (isBlocking != isBlocking(index)) {
+            setCachedValues(index, isBlocking, getTravelCost(index));
+            playerDistances.invalidate();
+            playerCosts.invalidate();
+            if (components != null) components.blockingChanged(index);
+            if (hierarchicalPathFinder != null) {
+                hierarchicalPathFinder.cellChanged(index);
+                // the portal paired with this cell opens or closes
+                int pair = getTeleport(index);
+                if (pair != -1) hierarchicalPathFinder.cellChanged(pair);
+            }
+            if (landmarks != null) landmarks.invalidate();
+            blockingVersion++;
+        }
+
+        Swamp swamp = cell.getSwamp();
+        int cost = swamp == null ? 1 : Math.min(swamp.getMovementFactor(), 255);
+        int oldCost = getTravelCost(index);
+        if (cost != oldCost) {
+            travelCostCounts[oldCost]--;
+            travelCostCounts[cost]++;
+            setCachedValues(index, isBlocking, cost);
+            playerCosts.invalidate();
+            if (hierarchicalPathFinder != null) hierarchicalPathFinder.cellChanged(index);
+            if (landmarks != null) landmarks.invalidate();
+            blockingVersion++;
+        }
+    }
+
+    /**
+     * Stores the values read by isBlocking and getTravelCost for a cell that
+     * was created
+     */
+    private void setCachedValues(int index, boolean isBlocking, int cost) {
+        if (staticLayer == null) {
+            blocking.set(index, isBlocking);
+            if (travelCosts == null && cost != 1) {
+                travelCosts = new byte[getSize()];
+                Arrays.fill(travelCosts, (byte) 1);
+            }
+            if (travelCosts != null) travelCosts[index] = (byte) cost;
+        } else {
+            setChunkValues(index, isBlocking, cost);
+        }
+    }
+
+    private void setChunkValues(int index, boolean isBlocking, int cost) {
+        int x = index % width;
+        int y = index / width;
+        int chunk = (y >> CHUNK_BITS) * chunksX + (x >> CHUNK_BITS);
+        int offset = ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+        if (isBlocking) chunkBlocking[chunk][offset >> 6] |= 1L << offset;
+        else chunkBlocking[chunk][offset >> 6] &= ~(1L << offset);
+        chunkTravelCosts[chunk][offset] = (byte) cost;
+    }
+
+    /**
+     * A portal was added, removed or paired (bombs destroy them): the portal
+     * edges are rebuilt on the next getTeleport, and everything computed
+     * from them is thrown away.
+     */
+    private void portalsChanged() {
+        teleportsValid = false;
+        playerDistances.invalidate();
+        playerCosts.invalidate();
+        if (components != null) components.invalidate();
+        blockingVersion++;
+    }
+
+    /**
+     * Only the portals that are paired with each other and both on the map
+     * lead somewhere (see Portal.getTeleportDestination).
+     * 
+     * @param index of the cell (see toIndex)
+     * @return index of the cell of the portal paired with the one on index,
+     *         -1 if there is none
+     */
+    public int getTeleport(int index) {
+        updateTeleports();
+        return teleports == null ? -1 : teleports[index];
+    }
+
+    /**
+     * @return true if there is at least one pair of portals on the map
+     */
+    public boolean hasTeleports() {
+        updateTeleports();
+        return teleports != null;
+    }
+
+    /**
+     * @return the indices of the cells for which getTeleport isn't -1
+     */
+    int[] getTeleportSources() {
+        updateTeleports();
+        return teleportSources;
+    }
+
+    /**
+     * Rebuilds the portal edges if a portal changed since the last call
+     */
+    private void updateTeleports() {
+        if (teleportsValid) return;
+        teleportsValid = true;
+        if (teleports != null) {
+            for (int index : teleportSources) teleports[index] = -1;
+        }
+        int[] oldSources = teleportSources;
+
+        List<Integer> sources = new ArrayList<>();
+        for (Portal portal : registry.entitiesOf(Portal.class)) {
+            Portal pair = portal.correspondingPortal;
+            // pairs go both ways, so that the fields can follow them backwards
+            if (pair == null || pair.correspondingPortal != portal || registry.get(pair.getId()) != pair) continue;
+            int index = portal.getCell().getIndex();
+            int pairIndex = pair.getCell().getIndex();
+            if (index == pairIndex) continue;
+
+            if (teleports == null) {
+                teleports = new int[getSize()];
+                Arrays.fill(teleports, -1);
+            }
+            teleports[index] = pairIndex;
+            sources.add(index);
+        }
+        teleportSources = sources.stream().mapToInt(Integer::intValue).toArray();
+        if (teleportSources.length == 0) teleports = null;
+        if (hierarchicalPathFinder != null) {
+            for (int index : oldSources) hierarchicalPathFinder.cellChanged(index);
+            for (int index : teleportSources) hierarchicalPathFinder.cellChanged(index);
+        }
+    }
+
+    /**
+     * Whether an entity other than the player can walk onto a cell: it isn't
+     * blocking, and if it has a portal, the portal's pair isn't blocking
+     * either (walking onto a portal ends on its pair, see getLandingCell). The
+     * player's cell is the end of the walk, its portal doesn't matter. Same
+     * rule as the searches (see PathFinder).
+     * 
+     * @param index of the cell (see toIndex)
+     */
+    public boolean canWalkOnto(int index) {
+        if (isBlocking(index)) return false;
+        if (playerCell != null && index == playerCell.getIndex()) return true;
+        int pair = getTeleport(index);
+        return pair == -1 || !isBlocking(pair);
+    }
+
+    /**
+     * @param cell a cell an entity other than the player walks onto
+     * @return the cell the entity ends up on: the one paired with the portal
+     *         on cell (see getTeleport), or cell itself if there is no portal
+     *         there or the player is on cell. Null if the pair is blocked, the
+     *         entity can't walk onto cell then (see canWalkOnto)
+     */
+    public Cell getLandingCell(Cell cell) {
+        if (cell == playerCell) return cell;
+        int pair = getTeleport(cell.getIndex());
+        if (pair == -1) return cell;
+        if (isBlocking(pair)) return null;
+        return getCellByIndex(pair);
+    }
+
+    /**
+     * Allocation free version of getCellsAround. Writes the indices of the
+     * cells around index in the order UP, DOWN, LEFT, RIGHT (skipping the ones
+     * that are off the map).
+     * 
+     * @param index of the cell (see toIndex)
+     * @param out   buffer of at least 4 ints
+     * @return the number of indices written to out
+     */
+    public int getNeighbourIndices(int index, int[] out) {
+        int count = 0;
+        int x = index % width;
+        if (index >= width) out[count++] = index - width;
+        if (index < width * height - width) out[count++] = index + width;
+        if (x > 0) out[count++] = index - 1;
+        if (x < width - 1) out[count++] = index + 1;
+        return count;
+    }
+
+    /**
+     * Retreives Cell Player is Currently In
+     * @return Cell, or null if the player isn't on the map
+     */
+    public Cell getPlayerCell() {
+        return playerCell;
     }
 
     public int getWidth() {
@@ -190,34 +871,402 @@ public class DungeonMap {
     }
     
     /**
-     * Fills in all the distances from the player for all the cells. Calls 
-     * setDistances() initially to reset values.
+     * Brings the distances from the player up to date. Only starts the search,
+     * the cells are reached as their distance is asked for (see
+     * DistanceField). Cells that can't be reached (and blocking cells) have
+     * the maximum distance.
      */
     public void flood() {
-        resetDistances();
+        playerDistances.update(playerCell == null ? -1 : playerCell.getIndex());
+    }
 
-        int explorationLevel = 0;
-        int valuesChanged = 1;
+    /**
+     * First step of a cheapest path (swamps included) from a cell to the
+     * player. Used by the entities that follow the player.
+     * 
+     * The step is the one of findPath(from, player cell) as it first searched
+     * (see PathFinder.Algorithm.DIJKSTRA), without a search of its own most of
+     * the time: one cost field is shared by all the followers (see CostField),
+     * which only searches as far as the followers that asked, and starts over
+     * when the player moved or a cell changed. When only one neighbour is on a
+     * cheapest path, findPath would step onto it too. When there is a tie, or
+     * swamps (findPath's search can then miss a cheapest path), the follower
+     * searches like findPath. On maps of HIERARCHICAL_MIN_SIZE cells or more,
+     * the search is hierarchical instead (see HierarchicalPathFinder), one per
+     * follower, and the step is only on a nearly cheapest path.
+     * 
+     * The step can be onto a portal, see getLandingCell.
+     * 
+     * @param from
+     * @return the next cell, from itself if it is the player's cell, or null if
+     *         the player can't be reached
+     */
+    public Cell stepTowardsPlayer(Cell from) {
+        return stepTowardsPlayer(from, null);
+    }
 
-        while (valuesChanged != 0) {
-            valuesChanged = 0;
+    /**
+     * Same as stepTowardsPlayer(from), reusing the path the entity got last
+     * time when nothing changed (see CachedPath). Only the steps the cost
+     * field leaves no choice about are cached, the hierarchical steps are only
+     * first steps. The hits and misses are counted (see getPathCacheHits).
+     * 
+     * @param from
+     * @param cache of the entity, updated, null not to use one
+     * @return the next cell, from itself if it is the player's cell, or null if
+     *         the player can't be reached
+     */
+    public Cell stepTowardsPlayer(Cell from, CachedPath cache) {
+        if (playerCell == null) return null;
+        int index = from.getIndex();
+        int target = playerCell.getIndex();
 
-            // Look for cells with the current explorationLevel
-            for (List<Cell> row : dungeonMap) {
-                for (Cell cell : row) {
-                    if (cell.getPlayerDistance() == explorationLevel) {
-                        valuesChanged += this.propagateFrom(cell);
-                    }
-                }
+        if (getSize() >= HIERARCHICAL_MIN_SIZE) {
+            int next;
+            if (isPlanned(index)) {
+                int[] planned = plannedPaths.get(index);
+                if (planned == DEFERRED_PATH) return stepWithoutSearch(from, null);
+                next = planned == null ? -1 : planned[1];
+                plannedSteps++;
+            } else {
+                if (!mayReach(index, target)) return null;
+                if (!prepareHierarchical()) return stepWithoutSearch(from, null);
+                HierarchicalPathFinder finder = getHierarchicalPathFinder();
+                finder.setExpansionLimit(budgetLeft);
+                next = finder.nextStep(index, target);
+                charge(finder.getExpanded());
+                if (finder.isAborted()) return stepWithoutSearch(from, null);
+            }
+            return next == -1 ? null : getCellByIndex(next);
+        }
+
+        if (cache != null) {
+            int next = cache.next(index, target, blockingVersion);
+            if (next != -1) {
+                pathCacheHits++;
+                return getCellByIndex(next);
+            }
+            pathCacheMisses++;
+        }
+
+        // the field would search the whole region of the player first
+        if (!mayReach(index, target)) {
+            if (cache != null) cache.clear();
+            return null;
+        }
+
+        playerCosts.update(target);
+        if (searchBudget != UNLIMITED_SEARCH_BUDGET) {
+            boolean settled = playerCosts.settle(index, budgetLeft);
+            charge(playerCosts.getExpanded());
+            if (!settled) return stepWithoutSearch(from, cache);
+        }
+        int next = playerCosts.nextStep(index);
+        if (next == -1) {
+            if (cache != null) cache.clear();
+            return null;
+        }
+        if (playerCosts.getCheapestSteps() == 1 && getMinTravelCost() == getMaxTravelCost()) {
+            if (cache != null) cache.store(playerCosts.pathFrom(index, true), target, blockingVersion);
+            return getCellByIndex(next);
+        }
+
+        // a tie, or swamps: findPath's search picks the step
+        if (cache != null) cache.clear();
+        PathFinder finder = getFollowerPathFinder();
+        finder.setExpansionLimit(budgetLeft);
+        int[] path = finder.findPath(index, target);
+        charge(finder.getExpanded());
+        if (finder.isAborted()) {
+            deferredSearches++;
+            return getCellByIndex(next);
+        }
+        return getCellByIndex(path.length == 1 ? index : path[1]);
+    }
+
+    /**
+     * @return whether planSteps searched from index, on the same map and for
+     *         the same cell of the player
+     */
+    private boolean isPlanned(int index) {
+        return plannedVersion == blockingVersion && plannedTarget == playerCell.getIndex()
+                && plannedPaths.containsKey(index);
+    }
+
+    /**
+     * canReach of the connected regions (see getComponents), unless a search
+     * budget is set and they have to be labelled again, which is a pass over
+     * the whole map: the searches then find out by themselves, within the
+     * budget
+     *
+     * @return false only if there is no path from from to to
+     */
+    private boolean mayReach(int from, int to) {
+        if (searchBudget != UNLIMITED_SEARCH_BUDGET && !getComponents().isValid()) return true;
+        return getComponents().canReach(from, to);
+    }
+
+    /**
+     * Rebuilds what changed in the hierarchical graph, within the budget left
+     * (see HierarchicalPathFinder.prepare)
+     *
+     * @return false if the budget ran out first
+     */
+    private boolean prepareHierarchical() {
+        HierarchicalPathFinder finder = getHierarchicalPathFinder();
+        boolean prepared = finder.prepare(budgetLeft);
+        charge(finder.getPrepared());
+        return prepared;
+    }
+
+    /**
+     * Takes cells off the budget left for the tick, if there is a budget
+     */
+    private void charge(int cells) {
+        if (searchBudget != UNLIMITED_SEARCH_BUDGET) budgetLeft -= cells;
+    }
+
+    /**
+     * Used by stepTowardsPlayer when the search budget of the tick is spent:
+     * the next cell of the entity's last path if it is still free, otherwise
+     * the neighbour closest to the player as the crow flies (the distances of
+     * flood would be a search as well), or from itself if none is closer. The
+     * entity searches again on the next tick.
+     */
+    private Cell stepWithoutSearch(Cell from, CachedPath cache) {
+        deferredSearches++;
+        int planned = cache == null ? -1 : cache.planned(from.getIndex());
+        if (planned != -1 && canWalkOnto(planned)) return getCellByIndex(planned);
+
+        int best = from.getIndex();
+        int bestDistance = manhattanToPlayer(best);
+        int[] neighbours = new int[4];
+        int count = getNeighbourIndices(best, neighbours);
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (!canWalkOnto(n)) continue;
+            int distance = manhattanToPlayer(getLandingCell(getCellByIndex(n)).getIndex());
+            if (distance < bestDistance) {
+                best = n;
+                bestDistance = distance;
+            }
+        }
+        return getCellByIndex(best);
+    }
+
+    private int manhattanToPlayer(int index) {
+        int player = playerCell.getIndex();
+        return Math.abs(index % width - player % width) + Math.abs(index / width - player / width);
+    }
+
+    /**
+     * Caps the number of cells the searches of stepTowardsPlayer (and of
+     * planSteps) can expand during a tick, all entities together, so that a
+     * tick can't take too long. Once it is spent, the entities keep following
+     * their last path or walk towards the player greedily, and search again
+     * on the next tick.
+     * 
+     * Everything the searches do is charged: the cost field picks up where it
+     * stopped on the next tick (see CostField.settle), and so do the rebuilds
+     * of the hierarchical graph (see HierarchicalPathFinder.prepare), which
+     * need a sector's worth of budget at least. A hierarchical search that
+     * doesn't fit is aborted, the followers take turns being searched for
+     * first (see planSteps). A follower whose tie doesn't fit takes the cost
+     * field's step instead (see CostField.nextStep). The connected regions
+     * aren't labelled again under a budget (see mayReach). Starting the cost
+     * field over costs as much as its last search, which was charged already.
+     * 
+     * @param budget cells per tick, UNLIMITED_SEARCH_BUDGET (the default) for
+     *               no limit
+     */
+    public void setSearchBudget(int budget) {
+        this.searchBudget = budget;
+        this.budgetLeft = budget;
+    }
+
+    public int getSearchBudget() {
+        return searchBudget;
+    }
+
+    /**
+     * Called at the start of each tick, gives the searches their budget back
+     * and forgets the planned paths of the last tick
+     */
+    public void startTick() {
+        budgetLeft = searchBudget;
+        plannedPaths.clear();
+    }
+
+    /**
+     * Plan phase of the moves of the followers on big maps: runs the
+     * hierarchical searches that stepTowardsPlayer would run for them before
+     * any of them moves, on up to getSearchParallelism() threads. They then
+     * move one after the other as usual, and stepTowardsPlayer takes the
+     * planned step instead of searching as long as the map and the player
+     * didn't change since. A step only depends on the map, so the moves are
+     * the same whatever the number of threads and whatever order the searches
+     * finish in.
+     * 
+     * With a search budget (see setSearchBudget), each thread gets an even
+     * share of what is left, and the searches that don't fit in it are
+     * deferred to the next tick. The search of a different follower comes
+     * first on each plan, so that a follower whose search is too long for
+     * what the others left gets a turn.
+     * 
+     * Does nothing if the search parallelism is 0 (the default, planning is
+     * opt-in), or on the smaller maps, where the followers mostly share a
+     * single search (see stepTowardsPlayer).
+     * 
+     * @param from the cells of the followers
+     */
+    public void planSteps(List<Cell> from) {
+        plannedPaths.clear();
+        if (searchParallelism == 0 || playerCell == null || getSize() < HIERARCHICAL_MIN_SIZE) return;
+
+        // the same checks as stepTowardsPlayer, only the searches are planned
+        int target = playerCell.getIndex();
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < from.size(); i++) {
+            int index = from.get(i).getIndex();
+            if (plannedPaths.containsKey(index) || !mayReach(index, target)) continue;
+            plannedPaths.put(index, null);
+            starts.add(index);
+        }
+        if (starts.isEmpty()) return;
+        Collections.rotate(starts, -(planCount++ % starts.size()));
+        plannedVersion = blockingVersion;
+        plannedTarget = target;
+
+        // what the searches read lazily is computed here, they only read it
+        hasTeleports();
+        if (!prepareHierarchical()) {
+            for (int index : starts) {
+                plannedPaths.put(index, DEFERRED_PATH);
             }
+            return;
+        }
+
+        int tasks = Math.min(searchParallelism, starts.size());
+        int share = searchBudget == UNLIMITED_SEARCH_BUDGET ? UNLIMITED_SEARCH_BUDGET : budgetLeft / tasks;
+        int[][] paths = new int[starts.size()][];
+        int[] spent = new int[tasks];
+        List<ForkJoinTask<?>> submitted = new ArrayList<>(tasks);
+        // one query per task, task t takes every tasks-th search
+        for (int t = 0; t < tasks; t++) {
+            int task = t;
+            HierarchicalPathFinder.Query query = plannedQuery(t);
+            Runnable run = () -> {
+                for (int i = task; i < paths.length; i += tasks) {
+                    query.setExpansionLimit(share == UNLIMITED_SEARCH_BUDGET ? share : share - spent[task]);
+                    int next = query.nextStep(starts.get(i), target);
+                    spent[task] += query.getExpanded();
+                    if (query.isAborted()) paths[i] = DEFERRED_PATH;
+                    else paths[i] = next == -1 ? null : new int[] { starts.get(i), next };
+                }
+            };
+            if (tasks == 1) run.run();
+            else submitted.add(searchPool().submit(run));
+        }
+        for (ForkJoinTask<?> task : submitted) {
+            task.join();
+        }
+
+        for (int i = 0; i < paths.length; i++) {
+            plannedPaths.put(starts.get(i), paths[i]);
+        }
+        for (int cells : spent) {
+            charge(cells);
+        }
+    }
+
+    /**
+     * @return the hierarchical query task t of planSteps searches with
+     */
+    private HierarchicalPathFinder.Query plannedQuery(int t) {
+        if (plannedQueries == null) plannedQueries = new HierarchicalPathFinder.Query[searchParallelism];
+        if (plannedQueries[t] == null) plannedQueries[t] = getHierarchicalPathFinder().newQuery();
+        return plannedQueries[t];
+    }
 
-            explorationLevel++;
+    /**
+     * @return the pool planSteps searches on, the common one unless the
+     *         parallelism was changed
+     */
+    private ForkJoinPool searchPool() {
+        if (searchPool == null) {
+            searchPool = searchParallelism == ForkJoinPool.getCommonPoolParallelism() ? ForkJoinPool.commonPool()
+                    : new ForkJoinPool(searchParallelism);
         }
+        return searchPool;
+    }
+
+    /**
+     * @param parallelism number of threads planSteps searches with, 1 to plan
+     *                    on the calling thread, 0 (the default) not to plan.
+     *                    With the parallelism of the common pool, the
+     *                    searches run on it
+     */
+    public void setSearchParallelism(int parallelism) {
+        if (parallelism == searchParallelism) return;
+        // shutting down the common pool does nothing
+        if (searchPool != null) searchPool.shutdown();
+        searchPool = null;
+        plannedQueries = null;
+        this.searchParallelism = parallelism;
+    }
+
+    public int getSearchParallelism() {
+        return searchParallelism;
+    }
+
+    /**
+     * @return the number of times stepTowardsPlayer took a path planned by
+     *         planSteps instead of searching
+     */
+    public long getPlannedSteps() {
+        return plannedSteps;
+    }
+
+    /**
+     * @return the number of times stepTowardsPlayer moved an entity without
+     *         searching because the budget of the tick was spent
+     */
+    public long getDeferredSearches() {
+        return deferredSearches;
+    }
+
+    /**
+     * @return the number of times stepTowardsPlayer could reuse the path of
+     *         an entity
+     */
+    public long getPathCacheHits() {
+        return pathCacheHits;
+    }
+
+    /**
+     * @return the number of times stepTowardsPlayer had to search for a path
+     *         although the entity had a cache
+     */
+    public long getPathCacheMisses() {
+        return pathCacheMisses;
+    }
+
+    /**
+     * @return a number that changes whenever the blocking state or the travel
+     *         cost of a cell changes
+     */
+    public int getBlockingVersion() {
+        return blockingVersion;
     }
 
     /**
-     * Uses Dijkstra's algorithm to find the shortest path between @param from
-     * and @param to. Takes into account cell travel costs due to swamp blocks.
+     * Finds the shortest path between @param from and @param to. Takes into
+     * account cell travel costs due to swamp blocks. The search is done by the
+     * PathFinder of the map, with the Dijkstra findPath always used unless it
+     * was switched to another algorithm (see getPathFinder). Cells that aren't
+     * connected are told apart without searching (see getComponents).
+     * Portals are taken (see getTeleport), in which case the path goes from
+     * the portal straight to the cell it is paired with.
      * 
      * @param from the positions to start from
      * @param to the target position
@@ -225,44 +1274,83 @@ public class DungeonMap {
      *  null if no path can be found.
      */
     public List<Cell> findPath(Cell from, Cell to) {
-        // order with lowest cost first
-        PriorityQueue<Vertex<Cell>> q = new PriorityQueue<Vertex<Cell>>(11, (a, b) -> a.getDistance()- b.getDistance());
-        Map<Cell, Integer> visited = new HashMap<>();
-        Graph<Cell> tree = new Graph<>();
-
-        q.add(new Vertex<Cell>(from, 0));
-        visited.put(from, 0);
-        tree.addVertex(new Vertex<Cell>(from, 0));
-
-        while (!q.isEmpty()) {
-            Cell current = q.poll().getData();
-            if (current.equals(to)) {
-                // Target found, return path
-                return tree.tracebackFrom(new Vertex<Cell>(current))
-                    .stream().map(v -> v.getData()).collect(Collectors.toList());
-            }
+        if (!getComponents().canReach(from.getIndex(), to.getIndex())) return null;
 
-            getNeighbors(current).stream().filter(n -> !n.isBlocking()).forEach(n -> {
-                Integer newCost = visited.get(current) + n.getTravelCost();
-                if (visited.keySet().contains(n)) {
-                    // resolve duplicate
-                    if (newCost < visited.get(n)) {
-                        visited.put(n, newCost);
-                        // Remove old link and add the new faster one
-                        tree.removeVertex(new Vertex<Cell>(n));
-                        tree.addEdge(new Vertex<Cell>(current), new Vertex<Cell>(n));
-                    }
+        return toCells(getPathFinder().findPath(from.getIndex(), to.getIndex()));
+    }
 
-                } else {
-                    // visit
-                    visited.put(n, newCost);
-                    q.add(new Vertex<Cell>(n, newCost));
-                    tree.addEdge(new Vertex<Cell>(current), new Vertex<Cell>(n));
-                }
-            });
+    /**
+     * @param path indices of cells, or null
+     * @return the cells, null if path is null
+     */
+    private List<Cell> toCells(int[] path) {
+        if (path == null) return null;
+
+        List<Cell> cells = new ArrayList<>(path.length);
+        for (int index : path) {
+            cells.add(getCellByIndex(index));
         }
+        return cells;
+    }
 
-        return null;
+    /**
+     * @return the connected regions of the map, created on the first call
+     */
+    public ConnectedComponents getComponents() {
+        if (components == null) components = new ConnectedComponents(this);
+        return components;
+    }
+
+    /**
+     * @return the hierarchical path finder used by stepTowardsPlayer on big
+     *         maps, created on the first call
+     */
+    public HierarchicalPathFinder getHierarchicalPathFinder() {
+        if (hierarchicalPathFinder == null) hierarchicalPathFinder = new HierarchicalPathFinder(this);
+        return hierarchicalPathFinder;
+    }
+
+    /**
+     * @return the path finder used by findPath, created on the first call
+     */
+    public PathFinder getPathFinder() {
+        if (pathFinder == null) {
+            pathFinder = new PathFinder(this);
+            pathFinder.setLandmarks(landmarks);
+        }
+        return pathFinder;
+    }
+
+    /**
+     * @return the path finder stepTowardsPlayer breaks ties with, which
+     *         searches the way findPath first did whatever the algorithm of
+     *         getPathFinder (see PathFinder.Algorithm.DIJKSTRA), created on
+     *         the first call
+     */
+    private PathFinder getFollowerPathFinder() {
+        if (followerPathFinder == null) {
+            followerPathFinder = new PathFinder(this);
+            followerPathFinder.setAlgorithm(PathFinder.Algorithm.DIJKSTRA);
+        }
+        return followerPathFinder;
+    }
+
+    /**
+     * The landmarks are only used by the ALT algorithm of the path finder
+     * (see getPathFinder). Their costs are computed right away. Once a cell
+     * changed, ALT searches like A* until they are computed again, which takes
+     * a call of setLandmarkCount (or Landmarks.update).
+     * 
+     * @param count number of landmarks, 0 (the default) for none
+     */
+    public void setLandmarkCount(int count) {
+        landmarks = count == 0 ? null : new Landmarks(this, count);
+        if (landmarks != null) landmarks.update();
+        getPathFinder().setLandmarks(landmarks);
+    }
+
+    public int getLandmarkCount() {
+        return landmarks == null ? 0 : landmarks.getCount();
     }
 
     /**
@@ -273,30 +1361,11 @@ public class DungeonMap {
      * @return the cell above, below, left or right of cell, depending on direction
      */
     public Cell getCellAround(Cell cell, Direction d) {
-        Pos2d pos = cell.getPosition();
-        if (d == Direction.UP) {
-            if (pos.getY() == 0) {
-                return null;
-            }
-            return getCell(pos.getX(), pos.getY() - 1);
-        } else if (d == Direction.DOWN) {
-            if (pos.getY() == getHeight() - 1) {
-                return null;
-            }
-            return getCell(pos.getX(), pos.getY() + 1);
-        } else if (d == Direction.LEFT) {
-            if (pos.getX() == 0) {
-                return null;
-            }
-            return getCell(pos.getX() - 1, pos.getY());
-        } else if (d == Direction.RIGHT) {
-            if (pos.getX() == getWidth() - 1) {
-                return null;
-            }
-            return getCell(pos.getX() + 1, pos.getY());
-        } else {
-            return cell;
+        int index = getNeighbourIndex(cell.getIndex(), d);
+        if (index == -1) {
+            return null;
         }
+        return getCellByIndex(index);
     }
 
     /**
@@ -324,27 +1393,6 @@ public class DungeonMap {
             .filter(cell -> cell != null);
     }
 
-    /**
-     * help function to assist in calculating distance from player to cell
-     * @param cell
-     * @return
-     */
-    private int propagateFrom(Cell cell) {
-        AtomicInteger changesMade = new AtomicInteger(0);
-
-        Arrays.stream(Direction.values()).forEach(d -> {
-            Cell neighbor = getCellAround(cell, d);
-            if (neighbor != null) {
-                if (!neighbor.isBlocking() && neighbor.getPlayerDistance() == width * height) {
-                    changesMade.incrementAndGet();
-                    neighbor.setPlayerDistance(cell.getPlayerDistance() + 1);
-                }
-            }
-        });
-
-        return changesMade.get();
-    }
-
     /**
      * Returns the neighbors of cell Ignores blocks off the map.
      * 
@@ -370,21 +1418,24 @@ public class DungeonMap {
     @Override
     public String toString() {
         String result = "";
-        for (List<Cell> row : dungeonMap) {
-            for (Cell cell : row) {
-                if (cell.getOccupants().stream().anyMatch(e -> e instanceof Player)) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Cell cell = peekCell(toIndex(x, y));
+                if (cell == null) {
+                    result += "   ";
+                } else if (cell.has(OccupantKind.PLAYER)) {
                     result += PLAYER;
-                } else if (cell.getOccupants().stream().anyMatch(e -> e instanceof Wall)) {
+                } else if (cell.has(OccupantKind.WALL)) {
                     result += WALL;
-                } else if (cell.getOccupants().stream().anyMatch(e -> e instanceof Mercenary)) {
+                } else if (cell.has(OccupantKind.MERCENARY)) {
                     result += " EM";
-                } else if (cell.getOccupants().stream().anyMatch(e -> e instanceof Spider)) {
+                } else if (cell.has(OccupantKind.SPIDER)) {
                     result += " ES";
-                } else if (cell.getOccupants().stream().anyMatch(e -> e instanceof ZombieToast)) {
+                } else if (cell.has(OccupantKind.ZOMBIE_TOAST)) {
                     result += " EZ";
-                } else if (cell.getOccupants().stream().anyMatch(e -> e instanceof MovingEntity)) {
+                } else if (cell.has(OccupantKind.MOVING)) {
                     result += ENEMY;
-                } else if (cell.getOccupants().stream().anyMatch(e -> e instanceof StaticEntity)) {
+                } else if (cell.has(OccupantKind.STATIC)) {
                     result += STATIC;
                 } else {
                     result += "   ";
@@ -399,6 +1450,50 @@ public class DungeonMap {
         return result;
     }
 
+    /**
+     * Should only be called once, during construction, before any entity is
+     * placed.
+     * 
+     * The static entities of the layer are only created when the cell of their
+     * square is (see getCellByIndex). Until then, the map reads whether the
+     * square is blocking and its travel cost straight from the layer. Note that
+     * getCells(), allEntities() and the entity counts only see the cells that
+     * were created.
+     * 
+     * @param layer   same size as the map
+     * @param dungeon the static entities belong to
+     */
+    public void setStaticLayer(StaticLayer layer, Dungeon dungeon) {
+        assert this.staticLayer == null : "set static layer should only be called once, during construction";
+        if (layer.getWidth() != width || layer.getHeight() != height) {
+            throw new Error("the static layer isn't the same size as the map");
+        }
+        this.chunkBlocking = new long[chunks.length][];
+        this.chunkTravelCosts = new byte[chunks.length][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] != null) allocateChunkCaches(chunk);
+        }
+        // the cells that were already created keep their values
+        for (Cell cell : getCells()) {
+            int index = cell.getIndex();
+            setChunkValues(index, blocking.get(index), getTravelCost(index));
+        }
+        this.blocking = null;
+        this.travelCosts = null;
+        this.staticLayer = layer;
+        this.staticLayerDungeon = dungeon;
+
+        // stored in the header, so that getMinTravelCost knows about the
+        // swamps without reading the whole file
+        travelCostCounts = layer.getTravelCostCounts();
+
+        // the searches need to know where the portals lead before their
+        // cells are used
+        for (String colour : layer.getPortalColours()) {
+            for (int index : layer.getPortals(colour)) getCellByIndex(index);
+        }
+    }
+
     /**
      * Should only be called once, during construction
      * @param pos the entry position (see .getEntry())
@@ -65,8 +65,20 @@ public abstract class Entity {
      * @param int YCoord
      */
     public void setPosition(int XCoord, int YCoord) {
-        this.position.setX(XCoord);
-        this.position.setY(YCoord);
+        // positions are shared (with the cells for example), never mutate them
+        Pos2d interned = dungeon == null ? null : dungeon.getMap().getPosition(XCoord, YCoord);
+        this.position = interned != null ? interned : new Pos2d(XCoord, YCoord);
+    }
+
+    /**
+     * Lets the map know that the state of this entity changed (its type
+     * string or whether it is blocking). Does nothing if the entity isn't on
+     * the map.
+     */
+    protected void onStateChanged() {
+        if (dungeon == null || position == null) return;
+        Cell cell = getCell();
+        if (cell != null && cell.getOccupants().contains(this)) cell.occupantChanged(this);
     }
 
     /**
@@ -121,4 +133,15 @@ public abstract class Entity {
      * Triggers the passive effects/behaviours of the entity.
      */
     public abstract void tick();
+
+    /**
+     * Only the entities whose tick does something are ticked by the dungeon
+     * (see DungeonMap.getTickedEntities). Must not change while the entity
+     * is on the map.
+     * 
+     * @return true if tick isn't empty
+     */
+    public boolean isTicked() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package dungeonmania;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the entities that are on a DungeonMap, by class, by type string and
+ * by id.
+ *
+ * An entity is registered under its own class, all its super classes and all
+ * the interfaces it implements. So {@code entitiesOf(Mercenary.class)} also
+ * contains the assassins, and {@code entitiesOf(Fighter.class)} contains every
+ * fighter on the map.
+ *
+ * Type strings can change during the game (a door becomes "door_unlocked" for
+ * example), so entities have to call Cell.occupantChanged when that happens
+ * (see Entity.onStateChanged).
+ *
+ * Within a bucket, entities are kept in the order in which they were added so
+ * that iterating is reproducible.
+ */
+public class EntityRegistry {
+
+    private Map<Class<?>, Set<Entity>> byClass = new HashMap<>();
+    private Map<String, Set<Entity>> byType = new HashMap<>();
+    private Map<String, Entity> byId = new HashMap<>();
+
+    /**
+     * the type string each entity was registered with
+     */
+    private Map<Entity, String> types = new HashMap<>();
+
+    /**
+     * cache of the classes an entity of a given class is registered under
+     */
+    private static Map<Class<?>, List<Class<?>>> keysCache = new ConcurrentHashMap<>();
+
+    /**
+     * Registers an entity that was just placed on the map
+     * @param e
+     */
+    public void add(Entity e) {
+        for (Class<?> key : keysOf(e.getClass())) {
+            byClass.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(e);
+        }
+        String type = e.getTypeAsString();
+        types.put(e, type);
+        byType.computeIfAbsent(type, k -> new LinkedHashSet<>()).add(e);
+        byId.put(e.getId(), e);
+    }
+
+    /**
+     * Unregisters an entity that was just removed from the map
+     * @param e
+     */
+    public void remove(Entity e) {
+        String type = types.remove(e);
+        if (type == null) return; // wasn't registered
+
+        for (Class<?> key : keysOf(e.getClass())) {
+            byClass.get(key).remove(e);
+        }
+        byType.get(type).remove(e);
+        byId.remove(e.getId());
+    }
+
+    /**
+     * Updates the type string under which the entity is registered
+     * @param e
+     */
+    public void refresh(Entity e) {
+        String previous = types.get(e);
+        if (previous == null) return; // not on the map
+
+        String type = e.getTypeAsString();
+        if (type.equals(previous)) return;
+
+        byType.get(previous).remove(e);
+        byType.computeIfAbsent(type, k -> new LinkedHashSet<>()).add(e);
+        types.put(e, type);
+    }
+
+    /**
+     * @param id
+     * @return the entity on the map with that id, or null
+     */
+    public Entity get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @param type class or interface
+     * @return number of entities on the map that are instances of type
+     */
+    public int count(Class<?> type) {
+        Set<Entity> bucket = byClass.get(type);
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    /**
+     * @param type as returned by getTypeAsString
+     * @return number of entities on the map with that type
+     */
+    public int count(String type) {
+        Set<Entity> bucket = byType.get(type);
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    /**
+     * @usage for example,
+     *        {@code registry.entitiesOf(Spider.class).forEach(spider -> foobar)}
+     * @param <T>  type
+     * @param type class or interface
+     * @return read only view of the entities on the map that are instances of type
+     */
+    public <T> Collection<T> entitiesOf(Class<T> type) {
+        Set<Entity> bucket = byClass.get(type);
+        if (bucket == null) return Collections.emptySet();
+
+        @SuppressWarnings("unchecked")
+        Collection<T> view = (Collection<T>) Collections.unmodifiableSet(bucket);
+        return view;
+    }
+
+    /**
+     * @param type as returned by getTypeAsString
+     * @return read only view of the entities on the map with that type
+     */
+    public Collection<Entity> entitiesOf(String type) {
+        Set<Entity> bucket = byType.get(type);
+        if (bucket == null) return Collections.emptySet();
+        return Collections.unmodifiableSet(bucket);
+    }
+
+    /**
+     * @param c concrete class
+     * @return c, all its super classes and all the interfaces it implements
+     */
+    private static List<Class<?>> keysOf(Class<?> c) {
+        return keysCache.computeIfAbsent(c, concrete -> {
+            List<Class<?>> keys = new ArrayList<>();
+            for (Class<?> k = concrete; k != null && k != Object.class; k = k.getSuperclass()) {
+                keys.add(k);
+                addInterfaces(k, keys);
+            }
+            return keys;
+        });
+    }
+
+    private static void addInterfaces(Class<?> c, List<Class<?>> keys) {
+        for (Class<?> i : c.getInterfaces()) {
+            if (!keys.contains(i)) {
+                keys.add(i);
+                addInterfaces(i, keys);
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package dungeonmania;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -26,6 +27,10 @@ public class GenerateMaze {
     private Pos2d start;
     private Pos2d end;
     private List<List<BCell>> rows;
+    /**
+     * interned positions of the maze, row after row (see at)
+     */
+    private Pos2d[] positions;
 
     /**
      * Factory method that makes a new instance of GenerateMaze
@@ -61,20 +66,34 @@ public class GenerateMaze {
                 rows.get(y).add(BCell.WALL);
             }
         }
+
+        positions = new Pos2d[dims.getX() * dims.getY()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new Pos2d(i % dims.getX(), i / dims.getX());
+        }
+    }
+
+    /**
+     * @return the interned position (x, y), or null if it is outside the maze
+     */
+    private Pos2d at(int x, int y) {
+        if (x < 0 || x >= dims.getX() || y < 0 || y >= dims.getY()) return null;
+        return positions[y * dims.getX() + x];
     }
 
     /**
      * helper method to get the coordinates of neighbours that are 2 units away
+     * (the ones outside the maze are skipped)
      * @param center
      * @return
      */
-    private static Stream<Pos2d> farNeighbours(Pos2d center) {
+    private Stream<Pos2d> farNeighbours(Pos2d center) {
         return Stream.of(
-            new Pos2d(center.getX(), center.getY()-2),
-            new Pos2d(center.getX(), center.getY()+2),
-            new Pos2d(center.getX()-2, center.getY()),
-            new Pos2d(center.getX()+2, center.getY())
-        );
+            at(center.getX(), center.getY()-2),
+            at(center.getX(), center.getY()+2),
+            at(center.getX()-2, center.getY()),
+            at(center.getX()+2, center.getY())
+        ).filter(Objects::nonNull);
     }
 
     /**
@@ -116,7 +135,7 @@ public class GenerateMaze {
      * algorithm helper function
      */
     private Pos2d average(Pos2d a, Pos2d b) {
-        return new Pos2d(Math.floorDiv(a.getX() + b.getX(), 2), Math.floorDiv(a.getY() + b.getY(), 2));
+        return at(Math.floorDiv(a.getX() + b.getX(), 2), Math.floorDiv(a.getY() + b.getY(), 2));
     }
 
     /**
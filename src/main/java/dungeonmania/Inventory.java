@@ -1,7 +1,10 @@
 package dungeonmania;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -29,6 +32,11 @@ import dungeonmania.response.models.ItemResponse;
 public class Inventory {
     private List<Entity> collectables = new ArrayList<>();
 
+    /**
+     * the same entities as collectables, by id
+     */
+    private Map<String, Entity> collectablesById = new HashMap<>();
+
     /**
      * Can't pick up more than one key
      * 
@@ -47,6 +55,7 @@ public class Inventory {
                 return false;
             }
         }
+        this.collectablesById.put(c.getId(), c);
         return this.collectables.add(c);
     }
 
@@ -55,7 +64,24 @@ public class Inventory {
      * @return true if the collectable was in the inventory
      */
     public boolean remove(Entity c) {
-        return this.collectables.remove(c);
+        if (!this.collectables.remove(c)) return false;
+        this.collectablesById.remove(c.getId());
+        return true;
+    }
+
+    /**
+     * @param entityId
+     * @return the item with that id, or null if it isn't in the inventory
+     */
+    public Entity get(String entityId) {
+        return this.collectablesById.get(entityId);
+    }
+
+    /**
+     * @param items collectables to remove
+     */
+    private void removeAll(List<Entity> items) {
+        items.forEach(this::remove);
     }
 
     public boolean remove(String stringType) {
@@ -93,10 +119,10 @@ public class Inventory {
             // If Inventory Contains SunStone, No Need to Remove the Treasure or the
             // SunStone
             price.stream().filter(e -> !((e instanceof SunStone) || (e instanceof Treasure)))
-                    .forEach(i -> collectables.remove(i));
+                    .forEach(i -> remove(i));
         } else {
             // Inventory Does Not Contain SunStone, Treasure is Used to Pay
-            price.stream().forEach(i -> collectables.remove(i));
+            price.stream().forEach(i -> remove(i));
         }
         return true;
     }
@@ -113,29 +139,29 @@ public class Inventory {
             items = buildable(Shield.RECIPES);
             if (items == null)
                 throw new InvalidActionException("not enough resources to build " + buildable);
-            collectables.removeAll(items);
-            collectables.add(new Shield(null, null));
+            removeAll(items);
+            add(new Shield(null, null));
             return;
         case Sceptre.STRING_TYPE:
             items = buildable(Sceptre.RECIPES);
             if (items == null)
                 throw new InvalidActionException("not enough resources to build " + buildable);
-            collectables.removeAll(items);
-            collectables.add(new Sceptre(null, null));
+            removeAll(items);
+            add(new Sceptre(null, null));
             return;
         case Bow.STRING_TYPE:
             items = buildable(Bow.RECIPES);
             if (items == null)
                 throw new InvalidActionException("not enough resources to build " + buildable);
-            collectables.removeAll(items);
-            collectables.add(new Bow(null, null));
+            removeAll(items);
+            add(new Bow(null, null));
             return;
         case MidnightArmour.STRING_TYPE:
             items = buildable(MidnightArmour.RECIPES);
             if (items == null)
                 throw new InvalidActionException("not enough resources to build " + buildable);
-            collectables.removeAll(items);
-            collectables.add(new MidnightArmour(null, null));
+            removeAll(items);
+            add(new MidnightArmour(null, null));
             return;
         default:
             throw new IllegalArgumentException("unknown buildable: " + buildable);
@@ -196,7 +222,7 @@ public class Inventory {
     public Entity useItem(String entityId) throws IllegalArgumentException, InvalidActionException {
 
         // find item
-        Entity itemUsed = collectables.stream().filter(c -> c.getId().equals(entityId)).findFirst().orElse(null);
+        Entity itemUsed = collectablesById.get(entityId);
 
         if (itemUsed == null)
             throw new InvalidActionException("Item not in inventory");
@@ -209,7 +235,7 @@ public class Inventory {
             potionDrunk.drink();
         }
 
-        collectables.remove(itemUsed);
+        remove(itemUsed);
 
         return itemUsed;
     }
@@ -269,7 +295,7 @@ public class Inventory {
                 }
             }
         }
-        this.collectables.removeAll(deadItems);
+        removeAll(deadItems);
     }
 
     /**
@@ -281,7 +307,7 @@ public class Inventory {
         bitem.usedForBattleRound(d);
         if (bitem.getDurability() <= 0) {
             assert bitem instanceof Entity;
-            this.collectables.remove((Entity) bitem);
+            remove((Entity) bitem);
             return true;
         }
         return false;
@@ -360,10 +386,10 @@ public class Inventory {
 
     /**
      * 
-     * @return list of stored collectable entities
+     * @return read only list of stored collectable entities
      */
     public List<Entity> getCollectables() {
-        return this.collectables;
+        return Collections.unmodifiableList(this.collectables);
     }
 
     /**
@@ -381,13 +407,14 @@ public class Inventory {
      */
     public void clear() {
         collectables.clear();
+        collectablesById.clear();
     }
 
     public void purgeOneRing() {
         List<Entity> copy = new ArrayList<>(collectables);
         copy.stream().forEach(e -> {
             if (e instanceof OneRing) {
-                collectables.remove(e);
+                remove(e);
             }
         });
     }
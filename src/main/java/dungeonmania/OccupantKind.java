@@ -0,0 +1,66 @@
+package dungeonmania;
+
+import dungeonmania.entities.MovingEntity;
+import dungeonmania.entities.StaticEntity;
+import dungeonmania.entities.logicals.FloorSwitch;
+import dungeonmania.entities.logicals.SwitchDoor;
+import dungeonmania.entities.movings.Mercenary;
+import dungeonmania.entities.movings.Player;
+import dungeonmania.entities.movings.Spider;
+import dungeonmania.entities.movings.ZombieToast;
+import dungeonmania.entities.statics.Boulder;
+import dungeonmania.entities.statics.Door;
+import dungeonmania.entities.statics.Exit;
+import dungeonmania.entities.statics.Portal;
+import dungeonmania.entities.statics.Swamp;
+import dungeonmania.entities.statics.Wall;
+import dungeonmania.entities.statics.ZombieToastSpawner;
+
+/**
+ * The kinds of entities a Cell keeps track of in its bitmask, so that "is there
+ * an X on this cell" is a single bit test.
+ *
+ * An entity can be of several kinds (a mercenary is both MERCENARY and MOVING).
+ */
+public enum OccupantKind {
+    PLAYER, WALL, BOULDER, DOOR, SWITCH_DOOR, SPAWNER, PORTAL, SWAMP, EXIT, FLOOR_SWITCH, MERCENARY, SPIDER,
+    ZOMBIE_TOAST, MOVING, STATIC;
+
+    private final int bit = 1 << this.ordinal();
+
+    /**
+     * kinds that might make a cell blocking
+     */
+    public static final int BLOCKING = WALL.bit | BOULDER.bit | DOOR.bit | SWITCH_DOOR.bit | SPAWNER.bit;
+
+    /**
+     * @return the bit that represents this kind in a mask
+     */
+    public int bit() {
+        return bit;
+    }
+
+    /**
+     * @param e
+     * @return the mask of all the kinds e is
+     */
+    public static int maskOf(Entity e) {
+        int mask = 0;
+        if (e instanceof Player) mask |= PLAYER.bit;
+        if (e instanceof Wall) mask |= WALL.bit;
+        if (e instanceof Boulder) mask |= BOULDER.bit;
+        if (e instanceof Door) mask |= DOOR.bit;
+        if (e instanceof SwitchDoor) mask |= SWITCH_DOOR.bit;
+        if (e instanceof ZombieToastSpawner) mask |= SPAWNER.bit;
+        if (e instanceof Portal) mask |= PORTAL.bit;
+        if (e instanceof Swamp) mask |= SWAMP.bit;
+        if (e instanceof Exit) mask |= EXIT.bit;
+        if (e instanceof FloorSwitch) mask |= FLOOR_SWITCH.bit;
+        if (e instanceof Mercenary) mask |= MERCENARY.bit;
+        if (e instanceof Spider) mask |= SPIDER.bit;
+        if (e instanceof ZombieToast) mask |= ZOMBIE_TOAST.bit;
+        if (e instanceof MovingEntity) mask |= MOVING.bit;
+        if (e instanceof StaticEntity) mask |= STATIC.bit;
+        return mask;
+    }
+}
@@ -1,15 +1,17 @@
 package dungeonmania;
 
-import java.util.Objects;
-
 import dungeonmania.util.Position;
 
 /**
  * A class that represents a 2d positional coordinate (x, y)
+ *
+ * Immutable, so instances can be shared freely. Positions on a map are
+ * interned by the map (see DungeonMap.getPosition), use that instead of
+ * allocating new ones in hot paths.
  */
-public class Pos2d {
-    private int x;
-    private int y;
+public final class Pos2d {
+    private final int x;
+    private final int y;
 
     public Pos2d(int x, int y) {
         this.x = x;
@@ -20,16 +22,25 @@ public class Pos2d {
         return this.x;
     }
 
-    public void setX(int x) {
-        this.x = x;
-    }
-
     public int getY() {
         return this.y;
     }
 
-    public void setY(int y) {
-        this.y = y;
+    /**
+     * @return both coordinates packed in a long, see key(int, int)
+     */
+    public long key() {
+        return key(x, y);
+    }
+
+    /**
+     * @param x
+     * @param y
+     * @return x in the high 32 bits, y in the low 32 bits. Two positions are
+     *         equal iff their keys are equal
+     */
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
     }
     
     /**
@@ -74,7 +85,9 @@ public class Pos2d {
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.x, this.y);
+        // same value as Objects.hash(x, y), without boxing. Iteration order of
+        // hash sets of positions (the maze generation) depends on it
+        return 31 * (31 + x) + y;
     }
 
     @Override
@@ -86,7 +99,7 @@ public class Pos2d {
 
         Pos2d checkPos = (Pos2d) obj;
 
-        return x == checkPos.getX() && y == checkPos.getY();
+        return key() == checkPos.key();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,374 @@
+package dungeonmania;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import dungeonmania.entities.statics.Door;
+import dungeonmania.entities.statics.Exit;
+import dungeonmania.entities.statics.Portal;
+import dungeonmania.entities.statics.Swamp;
+import dungeonmania.entities.statics.Wall;
+
+/**
+ * The static part of a dungeon (walls, swamps, exits, portals and doors)
+ * stored in a memory mapped file, so that huge dungeons don't have to be
+ * loaded in the heap.
+ *
+ * Each square of the map is a fixed size record, so reading a square is a
+ * single lookup in the file and the OS only pages in the regions that are
+ * actually used. A mapping can't be bigger than 2 GB, so the records are
+ * mapped in segments of 2^SEGMENT_BITS records, and offsets in the file are
+ * longs. Squares are still identified by an int index (see
+ * DungeonMap.toIndex), a layer has at most Integer.MAX_VALUE squares. The entities of a square are only created when the map
+ * creates its cell (see DungeonMap.setStaticLayer), everything else (moving
+ * entities, collectables, logical entities, ...) stays on the heap as usual.
+ *
+ * File layout (big endian):
+ * <pre>
+ * int magic, int version, int width, int height
+ * 256 ints: number of squares for each travel cost (see getTravelCostCounts)
+ * int number of portal colours, then for each colour:
+ *     short length, utf-8 name, int number of portals, int index of each portal
+ * width * height records of RECORD_SIZE bytes, row after row:
+ *     byte flags, byte movement factor, short portal colour, int door key
+ * </pre>
+ */
+public class StaticLayer {
+
+    private static final int MAGIC = 0x444D534C; // "DMSL"
+    private static final int VERSION = 2;
+    private static final int RECORD_SIZE = 8;
+    /**
+     * 2^27 records of 8 bytes, 1 GB per mapping
+     */
+    private static final int SEGMENT_BITS = 27;
+
+    private static final int WALL = 1;
+    private static final int SWAMP = 1 << 1;
+    private static final int EXIT = 1 << 2;
+    private static final int PORTAL = 1 << 3;
+    private static final int DOOR = 1 << 4;
+
+    /**
+     * the records, segment i holds the ones of the squares [i << segmentBits,
+     * (i + 1) << segmentBits)
+     */
+    private MappedByteBuffer[] segments;
+    private int segmentBits;
+    private int segmentMask;
+    private int width;
+    private int height;
+    private int[] travelCostCounts = new int[256];
+    private List<String> colours = new ArrayList<>();
+    /**
+     * indices of the portals of each colour, in the order they were written
+     */
+    private Map<String, int[]> portals = new LinkedHashMap<>();
+
+    private StaticLayer(FileChannel channel, int segmentBits) throws IOException {
+        // the header is read through the channel, only the records are mapped.
+        // The stream isn't closed, that would close the channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        if (in.readInt() != MAGIC) throw new Error("not a static layer file");
+        if (in.readInt() != VERSION) throw new Error("unsupported static layer version");
+        this.width = in.readInt();
+        this.height = in.readInt();
+        if ((long) width * height > Integer.MAX_VALUE) throw new Error("static layer too big");
+        for (int cost = 0; cost < travelCostCounts.length; cost++) {
+            travelCostCounts[cost] = in.readInt();
+        }
+
+        int colourCount = in.readInt();
+        long records = 20 + 4 * travelCostCounts.length;
+        for (int i = 0; i < colourCount; i++) {
+            byte[] name = new byte[in.readShort()];
+            in.readFully(name);
+            int[] indices = new int[in.readInt()];
+            for (int j = 0; j < indices.length; j++) {
+                indices[j] = in.readInt();
+            }
+            records += 6 + name.length + 4L * indices.length;
+            String colour = new String(name, StandardCharsets.UTF_8);
+            colours.add(colour);
+            portals.put(colour, indices);
+        }
+
+        long size = (long) width * height;
+        if (channel.size() < records + size * RECORD_SIZE) throw new Error("truncated static layer file");
+        this.segmentBits = segmentBits;
+        this.segmentMask = (1 << segmentBits) - 1;
+        this.segments = new MappedByteBuffer[(int) ((size + segmentMask) >> segmentBits)];
+        for (int i = 0; i < segments.length; i++) {
+            long first = (long) i << segmentBits;
+            long count = Math.min(size - first, 1L << segmentBits);
+            // the mappings stay valid after the channel is closed
+            segments[i] = channel.map(MapMode.READ_ONLY, records + first * RECORD_SIZE, count * RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Maps a file written by write(). Only reads the header, the records are
+     * paged in as they are used.
+     *
+     * @param file
+     * @return the static layer stored in the file
+     * @throws IOException
+     */
+    public static StaticLayer open(Path file) throws IOException {
+        return open(file, SEGMENT_BITS);
+    }
+
+    /**
+     * @param segmentBits log2 of the number of records per mapping, smaller
+     *                    than SEGMENT_BITS to test the segments on small files
+     */
+    static StaticLayer open(Path file, int segmentBits) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new StaticLayer(channel, segmentBits);
+        }
+    }
+
+    /**
+     * @param type as found in the dungeon files
+     * @return true if entities of that type are stored in static layers
+     */
+    public static boolean handles(String type) {
+        return Objects.equals(type, Wall.STRING_TYPE) || Objects.equals(type, Swamp.STRING_TYPE)
+                || Objects.equals(type, Exit.STRING_TYPE) || Objects.equals(type, Portal.STRING_TYPE)
+                || Objects.equals(type, Door.STRING_TYPE);
+    }
+
+    /**
+     * Writes the static entities of a dungeon (see handles) to a static layer
+     * file. The other entities are ignored, load them with
+     * Dungeon.fromJSONObject(random, name, mode, json, layer).
+     *
+     * @param file    overwritten if it exists
+     * @param dungeon content of a dungeon file
+     * @throws IOException
+     */
+    public static void write(Path file, JSONObject dungeon) throws IOException {
+        int width = dungeon.getInt("width");
+        int height = dungeon.getInt("height");
+        JSONArray entities = dungeon.getJSONArray("entities");
+
+        // portals first, they go in the header
+        Map<String, List<Integer>> portals = new LinkedHashMap<>();
+        for (int i = 0; i < entities.length(); i++) {
+            JSONObject entity = entities.getJSONObject(i);
+            if (Objects.equals(entity.getString("type"), Portal.STRING_TYPE)) {
+                portals.computeIfAbsent(entity.getString("colour"), c -> new ArrayList<>())
+                        .add(entity.getInt("y") * width + entity.getInt("x"));
+            }
+        }
+
+        // the cost of each swamp square, the last swamp written wins
+        Map<Integer, Integer> swamps = new HashMap<>();
+        for (int i = 0; i < entities.length(); i++) {
+            JSONObject entity = entities.getJSONObject(i);
+            if (Objects.equals(entity.getString("type"), Swamp.STRING_TYPE)) {
+                swamps.put(entity.getInt("y") * width + entity.getInt("x"),
+                        Math.min(entity.getInt("movement_factor"), 255));
+            }
+        }
+        int[] travelCostCounts = new int[256];
+        travelCostCounts[1] = width * height - swamps.size();
+        swamps.values().forEach(cost -> travelCostCounts[cost]++);
+
+        ByteBuffer header = ByteBuffer.allocate(2048);
+        header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+        for (int count : travelCostCounts) {
+            header.putInt(count);
+        }
+        header.putInt(portals.size());
+        for (Map.Entry<String, List<Integer>> colour : portals.entrySet()) {
+            byte[] name = colour.getKey().getBytes(StandardCharsets.UTF_8);
+            int needed = 6 + name.length + 4 * colour.getValue().size();
+            if (header.remaining() < needed) {
+                header = ByteBuffer.allocate(header.capacity() * 2 + needed).put(header.flip());
+            }
+            header.putShort((short) name.length).put(name);
+            header.putInt(colour.getValue().size());
+            colour.getValue().forEach(header::putInt);
+        }
+        header.flip();
+
+        List<String> colours = new ArrayList<>(portals.keySet());
+        long squares = (long) width * height;
+        if (squares > Integer.MAX_VALUE) throw new Error("static layer too big");
+        long records = header.limit();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header, 0);
+            // all the records are 0 until written, the file can be sparse
+            if (squares > 0) channel.write(ByteBuffer.allocate(1), records + squares * RECORD_SIZE - 1);
+
+            // only the segments with static entities are mapped
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((squares + (1 << SEGMENT_BITS) - 1) >> SEGMENT_BITS)];
+            for (int i = 0; i < entities.length(); i++) {
+                JSONObject entity = entities.getJSONObject(i);
+                String type = entity.getString("type");
+                if (!handles(type)) continue;
+
+                int index = entity.getInt("y") * width + entity.getInt("x");
+                int segment = index >>> SEGMENT_BITS;
+                if (segments[segment] == null) {
+                    long first = (long) segment << SEGMENT_BITS;
+                    long count = Math.min(squares - first, 1L << SEGMENT_BITS);
+                    segments[segment] = channel.map(MapMode.READ_WRITE, records + first * RECORD_SIZE,
+                            count * RECORD_SIZE);
+                }
+                MappedByteBuffer out = segments[segment];
+                int record = (index & ((1 << SEGMENT_BITS) - 1)) * RECORD_SIZE;
+                int flags = out.get(record);
+                if (Objects.equals(type, Wall.STRING_TYPE)) {
+                    flags |= WALL;
+                } else if (Objects.equals(type, Swamp.STRING_TYPE)) {
+                    flags |= SWAMP;
+                    out.put(record + 1, (byte) Math.min(entity.getInt("movement_factor"), 255));
+                } else if (Objects.equals(type, Exit.STRING_TYPE)) {
+                    flags |= EXIT;
+                } else if (Objects.equals(type, Portal.STRING_TYPE)) {
+                    flags |= PORTAL;
+                    out.putShort(record + 2, (short) colours.indexOf(entity.getString("colour")));
+                } else {
+                    flags |= DOOR;
+                    out.putInt(record + 4, entity.getInt("key"));
+                }
+                out.put(record, (byte) flags);
+            }
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) segment.force();
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the segment the record of the square is in, see record
+     */
+    private MappedByteBuffer segment(int index) {
+        return segments[index >>> segmentBits];
+    }
+
+    /**
+     * @return the offset of the record of the square in its segment
+     */
+    private int record(int index) {
+        return (index & segmentMask) * RECORD_SIZE;
+    }
+
+    private int flags(int index) {
+        return segment(index).get(record(index));
+    }
+
+    /**
+     * Only valid for squares whose cell was never created (doors might have
+     * been opened since).
+     *
+     * @param index of the square (see DungeonMap.toIndex)
+     * @return true if the square is blocking
+     */
+    public boolean isBlocking(int index) {
+        return (flags(index) & (WALL | DOOR)) != 0;
+    }
+
+    /**
+     * @param index of the square (see DungeonMap.toIndex)
+     * @return the cost to walk onto the square
+     */
+    public int getTravelCost(int index) {
+        if ((flags(index) & SWAMP) == 0) return 1;
+        return segment(index).get(record(index) + 1) & 0xFF;
+    }
+
+    /**
+     * Written along with the layer, so that the map knows the lowest and
+     * highest travel costs without reading all the records.
+     *
+     * @return the number of squares for each travel cost (the index), as
+     *         written
+     */
+    public int[] getTravelCostCounts() {
+        return travelCostCounts.clone();
+    }
+
+    /**
+     * @return the colours of the portals of the layer
+     */
+    public Collection<String> getPortalColours() {
+        return Collections.unmodifiableSet(portals.keySet());
+    }
+
+    /**
+     * @param colour
+     * @return the indices of the portals of that colour (empty if there are none)
+     */
+    public int[] getPortals(String colour) {
+        return portals.getOrDefault(colour, new int[0]);
+    }
+
+    /**
+     * Creates the static entities of a square in its (newly created) cell. A
+     * portal is paired with the other portal of its colour, whose cell gets
+     * created if it wasn't yet.
+     *
+     * @param map
+     * @param cell    that was just created by the map
+     * @param dungeon the entities belong to
+     */
+    void populate(DungeonMap map, Cell cell, Dungeon dungeon) {
+        int index = cell.getIndex();
+        int flags = flags(index);
+        if (flags == 0) return;
+
+        MappedByteBuffer buffer = segment(index);
+        int record = record(index);
+        Pos2d pos = cell.getPosition();
+        if ((flags & WALL) != 0) cell.addOccupant(new Wall(dungeon, pos));
+        if ((flags & EXIT) != 0) cell.addOccupant(new Exit(dungeon, pos));
+        if ((flags & SWAMP) != 0) cell.addOccupant(new Swamp(dungeon, pos, buffer.get(record + 1) & 0xFF));
+        if ((flags & DOOR) != 0) cell.addOccupant(new Door(dungeon, pos, buffer.getInt(record + 4)));
+        if ((flags & PORTAL) != 0) {
+            String colour = colours.get(buffer.getShort(record + 2));
+            Portal portal = new Portal(dungeon, pos, colour);
+            cell.addOccupant(portal);
+
+            for (int other : getPortals(colour)) {
+                if (other == index) continue;
+                Portal corresponding = map.getCellByIndex(other).hasPortal();
+                if (corresponding != null && portal.correspondingPortal == null) {
+                    portal.setCorrespondingPortal(corresponding);
+                    corresponding.setCorrespondingPortal(portal);
+                }
+            }
+        }
+    }
+}
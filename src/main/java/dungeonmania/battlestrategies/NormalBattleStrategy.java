@@ -11,6 +11,7 @@ import dungeonmania.Cell;
 import dungeonmania.Dungeon;
 import dungeonmania.DungeonMap;
 import dungeonmania.Entity;
+import dungeonmania.OccupantKind;
 import dungeonmania.Pos2d;
 import dungeonmania.Utils;
 import dungeonmania.entities.Fighter;
@@ -136,6 +137,8 @@ public class NormalBattleStrategy implements BattleStrategy {
                 Cell c = map.getCell(x + pos.getX(), y + pos.getY());
                 if (c == null)
                     continue; // coordinate is outside the map
+                if (!c.has(OccupantKind.MERCENARY))
+                    continue;
 
                 c.getOccupants().stream().filter(e -> e instanceof Mercenary).map(e -> (Mercenary) e)
                         .filter(m -> m.getFighterRelation() == FighterRelation.ALLY).forEach(allies::add);
@@ -153,6 +153,11 @@ public abstract class LogicalEntity extends Entity {
         }
     }
 
+    @Override
+    public boolean isTicked() {
+        return true;
+    }
+
     @Override
     public LayerLevel getLayerLevel() {
         return LayerLevel.STATIC;
@@ -124,6 +124,11 @@ public abstract class MovingEntity extends Entity {
         return false; 
     }
 
+    @Override
+    public boolean isTicked() {
+        return true;
+    }
+
     @Override
     public LayerLevel getLayerLevel() {
         return LayerLevel.MOVING_ENTITY;
@@ -77,9 +77,8 @@ public class InvincibilityPotion extends Potion {
     public void applyEffectsEveryTick() {
         if (this.dungeon.getGameMode() == GameMode.HARD) return;
 
-        dungeon.getMap().allEntities().stream()
-            .filter(e -> !affectedEntities.keySet().contains(e))
-            .filter(e -> e instanceof Fighter).map(e -> (Fighter) e)
+        dungeon.getMap().getEntities(Fighter.class).stream()
+            .filter(f -> !affectedEntities.keySet().contains(f))
             .filter(f -> f.getFighterRelation() == FighterRelation.ENEMY)
             .forEach(f -> {
                 MovingEntity enemy = (MovingEntity) f;
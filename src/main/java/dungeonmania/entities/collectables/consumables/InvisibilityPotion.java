@@ -39,9 +39,8 @@ public class InvisibilityPotion extends Potion {
      */
     @Override
     public void applyEffectsEveryTick() {
-        dungeon.getMap().allEntities().stream()
-            .filter(e -> !affectedEntities.keySet().contains(e))
-            .filter(e -> e instanceof Fighter).map(e -> (Fighter) e)
+        dungeon.getMap().getEntities(Fighter.class).stream()
+            .filter(f -> !affectedEntities.keySet().contains(f))
             .filter(f -> f.getFighterRelation() == FighterRelation.ENEMY) // having this enables allies to see you
             .forEach(f -> {
                 MovingEntity enemy = (MovingEntity) f;
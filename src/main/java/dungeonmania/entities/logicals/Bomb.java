@@ -65,64 +65,16 @@ public class Bomb extends LogicalEntity {
         return;
     }
 
-    /**
-     * Finds the Square Search Area within the Map
-     * 
-     * @return Hashtable<String, Integer> : Format [leftBlastXCoord,
-     *         rightBlastXCoord, topBlastYCoord, bottomBlastYCoord]
-     */
-    private Hashtable<String, Integer> findBlastSearchArea() {
-        Hashtable<String, Integer> outputDict = new Hashtable<String, Integer>();
-
-        // Get Current Coords of Bomb
-        int bombXCoord = this.position.getX();
-        int bombYCoord = this.position.getY();
-        outputDict.put("bombXCoord", bombXCoord);
-        outputDict.put("bombYCoord", bombYCoord);
-
-        // Get Width and Height
-        DungeonMap map = this.dungeon.getMap();
-        int width = map.getWidth();
-        int height = map.getHeight();
-
-        // Corners of Blast Radius Search Square
-        int leftBlastXCoord = bombXCoord - BLAST_RADIUS;
-        if (leftBlastXCoord < 0) {
-            leftBlastXCoord = 0;
-        }
-        outputDict.put("leftBlastXCoord", leftBlastXCoord);
-
-        int rightBlastXCoord = bombXCoord + BLAST_RADIUS;
-        if (rightBlastXCoord > (width - 1)) {
-            rightBlastXCoord = width - 1;
-        }
-        outputDict.put("rightBlastXCoord", rightBlastXCoord);
-
-        int topBlastYCoord = bombYCoord - BLAST_RADIUS;
-        if (topBlastYCoord < 0) {
-            topBlastYCoord = 0;
-        }
-        outputDict.put("topBlastYCoord", topBlastYCoord);
-
-        int bottomBlastYCoord = bombYCoord + BLAST_RADIUS;
-        if (bottomBlastYCoord > (height - 1)) {
-            bottomBlastYCoord = height - 1;
-        }
-        outputDict.put("bottomBlastYCoord", bottomBlastYCoord);
-
-        return outputDict;
-    }
-
     /**
      * Returns the Direct Distance Between the Inputted Column and Row Compared to
      * the bomb coordinates.
      * 
      * @return radialDistance
      */
-    private double getRadialDistance(Hashtable<String, Integer> dimensionDetails, int col, int row) {
+    private double getRadialDistance(int col, int row) {
         // Check if Within Radius
-        int currDistanceFromBombX = Math.abs(dimensionDetails.get("bombXCoord") - col);
-        int currDistanceFromBombY = Math.abs(dimensionDetails.get("bombYCoord") - row);
+        int currDistanceFromBombX = Math.abs(this.position.getX() - col);
+        int currDistanceFromBombY = Math.abs(this.position.getY() - row);
         double radialDistance = Math.sqrt(Math.pow(currDistanceFromBombX, 2) + Math.pow(currDistanceFromBombY, 2));
         return radialDistance;
     }
@@ -156,14 +108,18 @@ public class Bomb extends LogicalEntity {
      */
     @Override
     public void activate() {
-        Hashtable<String, Integer> dimensionDetails = findBlastSearchArea();
+        DungeonMap map = this.dungeon.getMap();
+
+        // Corners of Blast Radius Search Square, clamped to the map
+        int leftBlastXCoord = Math.max(this.position.getX() - BLAST_RADIUS, 0);
+        int rightBlastXCoord = Math.min(this.position.getX() + BLAST_RADIUS, map.getWidth() - 1);
+        int topBlastYCoord = Math.max(this.position.getY() - BLAST_RADIUS, 0);
+        int bottomBlastYCoord = Math.min(this.position.getY() + BLAST_RADIUS, map.getHeight() - 1);
 
         // Traversing through Blast Square
-        for (int row = dimensionDetails.get("topBlastYCoord"); row <= dimensionDetails
-                .get("bottomBlastYCoord"); row++) {
-            for (int col = dimensionDetails.get("leftBlastXCoord"); col <= dimensionDetails
-                    .get("rightBlastXCoord"); col++) {
-                double radialDistance = getRadialDistance(dimensionDetails, col, row);
+        for (int row = topBlastYCoord; row <= bottomBlastYCoord; row++) {
+            for (int col = leftBlastXCoord; col <= rightBlastXCoord; col++) {
+                double radialDistance = getRadialDistance(col, row);
                 if (Math.floor(radialDistance) <= BLAST_RADIUS) {
                     destroyOtherOccupantsCell(col, row);
                 }
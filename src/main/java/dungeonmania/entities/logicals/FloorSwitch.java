@@ -40,6 +40,7 @@ public class FloorSwitch extends LogicalEntity {
         if (!activated) {
             this.activated = true;
             this.tickCountActivated = dungeon.getTickCount();
+            onStateChanged();
         }
     }
 
@@ -48,7 +49,10 @@ public class FloorSwitch extends LogicalEntity {
      */
     @Override
     public void deactivate() {
-        this.activated = false;
+        if (activated) {
+            this.activated = false;
+            onStateChanged();
+        }
     }
 
     /**
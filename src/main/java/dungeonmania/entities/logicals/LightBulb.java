@@ -22,7 +22,10 @@ public class LightBulb extends LogicalEntity {
      */
     @Override
     public void activate() {
-        this.activated = true;
+        if (!activated) {
+            this.activated = true;
+            onStateChanged();
+        }
     }
 
     /**
@@ -30,7 +33,10 @@ public class LightBulb extends LogicalEntity {
      */
     @Override
     public void deactivate() {
-        this.activated = false;
+        if (activated) {
+            this.activated = false;
+            onStateChanged();
+        }
     }
 
 
@@ -60,12 +60,18 @@ public class SwitchDoor extends LogicalEntity {
 
     @Override
     public void activate() {
-        this.locked = false;
+        if (locked) {
+            this.locked = false;
+            onStateChanged();
+        }
     }
 
     @Override
     public void deactivate() {
-        locked = true;
+        if (!locked) {
+            locked = true;
+            onStateChanged();
+        }
     }
 
 }
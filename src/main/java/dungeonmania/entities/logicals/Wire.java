@@ -28,6 +28,11 @@ public class Wire extends LogicalEntity {
 
     }
 
+    @Override
+    public boolean isTicked() {
+        return false;
+    }
+
     public BlockingReason isBlocking() {
         return BlockingReason.NOT;
     }
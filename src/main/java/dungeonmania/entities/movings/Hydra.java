@@ -6,6 +6,7 @@ import java.util.Random;
 
 import dungeonmania.Cell;
 import dungeonmania.Dungeon;
+import dungeonmania.DungeonMap;
 import dungeonmania.Entity;
 import dungeonmania.Pos2d;
 import dungeonmania.Utils;
@@ -57,13 +58,16 @@ public class Hydra extends MovingEntity implements Fighter {
      * @return
      */
     private static Cell randomPosition(Dungeon dungeon) {
-        // check cells where can spawn a hydra
-        List<Cell> availableCells = new ArrayList<Cell>();
-        for (int y = 0; y < dungeon.getMap().getHeight(); y++) {
-            for (int x = 0; x < dungeon.getMap().getWidth(); x++) {
-                if (!dungeon.getMap().getCell(x, y).isBlocking() && !dungeon.getMap().getCell(x, y).hasPlayer()) {
-                    availableCells.add(dungeon.getMap().getCell(x, y));
-                }
+        DungeonMap map = dungeon.getMap();
+        Cell playerCell = map.getPlayerCell();
+        int playerIndex = playerCell == null ? -1 : playerCell.getIndex();
+
+        // check cells where can spawn a hydra (by index, so that the empty
+        // squares of the map don't have to be created)
+        List<Integer> availableCells = new ArrayList<Integer>();
+        for (int i = 0; i < map.getSize(); i++) {
+            if (!map.isBlocking(i) && i != playerIndex) {
+                availableCells.add(i);
             }
         }
 
@@ -72,8 +76,7 @@ public class Hydra extends MovingEntity implements Fighter {
         }
 
         // choose a random cell
-        Cell cell = Utils.choose(availableCells, dungeon.getRandom());
-        return cell;
+        return map.getCellByIndex(Utils.choose(availableCells, dungeon.getRandom()));
     }
 
     /**
@@ -85,6 +85,11 @@ public class Player extends MovingEntity implements Fighter {
     public void tick() {
     }
 
+    @Override
+    public boolean isTicked() {
+        return false;
+    }
+
     @Override
     public boolean onDeath() {
         DungeonMap map = this.dungeon.getMap();
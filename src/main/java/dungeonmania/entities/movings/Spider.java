@@ -52,10 +52,10 @@ public class Spider extends MovingEntity implements Fighter {
             Random random = dungeon.getRandom();
             int x = random.nextInt(width - 2) + 1;
             int y = random.nextInt(height - 2) + 1;
-            Pos2d spawn = new Pos2d(x, y);
+            Cell spawn = dungeonMap.getCell(x, y);
 
-            if (!dungeonMap.getCell(spawn).hasBoulder()) {
-                return dungeonMap.getCell(spawn);
+            if (!spawn.hasBoulder()) {
+                return spawn;
             }
         }
 
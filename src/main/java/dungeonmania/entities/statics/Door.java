@@ -41,6 +41,7 @@ public class Door extends StaticEntity {
                 // key matches, remove the key from inventory and unlock door
                 if (c instanceof Key) inventory.remove(c);
                 locked = false;
+                onStateChanged();
                 return true;
             }
         }
@@ -27,9 +27,12 @@ public class Portal extends StaticEntity {
 
     public void setCorrespondingPortal(Portal portal) {
         this.correspondingPortal = portal;
+        // the paths through the portals change
+        onStateChanged();
     }
 
-    // Returns cell of the corresponding Portal
+    // Returns cell of the corresponding Portal. The pair is linked when the
+    // dungeon is loaded, so this doesn't look at any other cell
     public Cell getTeleportDestination() {
         // If the portal does not yet have a corresponding portal, return the current cell only
         if (correspondingPortal == null) {
@@ -47,6 +50,14 @@ public class Portal extends StaticEntity {
 
     @Override
     public String getTypeAsString() {
+        return Portal.typeOf(colour);
+    }
+
+    /**
+     * @param colour
+     * @return the type string of the portals of that colour
+     */
+    public static String typeOf(String colour) {
         return Portal.STRING_TYPE + "_" + colour;
     }
 
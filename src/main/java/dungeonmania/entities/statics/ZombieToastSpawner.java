@@ -75,6 +75,11 @@ public class ZombieToastSpawner extends StaticEntity {
         this.onZombieSpawnSemy.emit(zombieToast);
     }
 
+    @Override
+    public boolean isTicked() {
+        return true;
+    }
+
     /**
      * 
      * @param o observer that will be called when a ZombieToast is spawned
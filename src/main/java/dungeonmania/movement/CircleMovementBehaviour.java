@@ -1,12 +1,7 @@
 package dungeonmania.movement;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Predicate;
-
 import dungeonmania.Cell;
 import dungeonmania.DungeonMap;
-import dungeonmania.Pos2d;
 import dungeonmania.util.Direction;
 
 /**
@@ -18,7 +13,19 @@ public class CircleMovementBehaviour extends MovementBehaviour {
     public DungeonMap getMap() {
         return this.map;
     }
-    private List<Pos2d> movementCycle = new ArrayList<>();
+    /**
+     * offsets of the movement cycle from its centre, clockwise starting from
+     * the square above
+     */
+    private static final int[] CYCLE_X = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    private static final int[] CYCLE_Y = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+    /**
+     * centre of the movement cycle (plain ints, the cycle moves with the
+     * spider so there is no point allocating positions for it)
+     */
+    private int centreX;
+    private int centreY;
     private int step = 0;
     private int direction = 1;
 
@@ -26,63 +33,39 @@ public class CircleMovementBehaviour extends MovementBehaviour {
     {
         super(precedence, initialCell);
         this.map = map;
-        int initialX = initialCell.getPosition().getX();
-        int initialY = initialCell.getPosition().getY();
-
-        this.movementCycle.add(new Pos2d(
-            initialX, 
-            initialY - 1
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX + 1, 
-            initialY - 1
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX + 1, 
-            initialY
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX + 1, 
-            initialY + 1
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX, 
-            initialY + 1
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX - 1, 
-            initialY + 1
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX - 1, 
-            initialY
-        ));
-        this.movementCycle.add(new Pos2d(
-            initialX - 1, 
-            initialY - 1
-        ));
+        this.centreX = initialCell.getPosition().getX();
+        this.centreY = initialCell.getPosition().getY();
+    }
+
+    /**
+     * @param step in the cycle
+     * @return the cell at that step, or null if it's off the map
+     */
+    private Cell cycleCell(int step) {
+        return map.getCell(centreX + CYCLE_X[step], centreY + CYCLE_Y[step]);
     }
 
     public Cell move()
     {   
         // if the spider is completely blocked, don't move
-        Predicate<Pos2d> isBlocking = p -> {
-            Cell c = map.getCell(p);
-            if (c == null) return true; // it's blocking
-            return c.hasBoulder();
-        };
-        if (movementCycle.stream().allMatch(isBlocking)) {
+        boolean blocked = true;
+        for (int i = 0; i < CYCLE_X.length && blocked; i++) {
+            Cell c = cycleCell(i);
+            // off the map is blocking
+            blocked = c == null || c.hasBoulder();
+        }
+        if (blocked) {
             return getCurrentCell();
         }
 
-        Cell nextCell = map.getCell(movementCycle.get(step));
+        Cell nextCell = cycleCell(step);
         if (nextCell == null || nextCell.hasBoulder())
         {
             // The case where the spider spawns right under the boundry
             if (step == 0 && nextCell == null) {
                 step++;
                 setCurrentCell(map.getCellAround(getCurrentCell(), Direction.DOWN));
-                nextCell = map.getCell(movementCycle.get(0));
+                nextCell = cycleCell(0);
                 super.setCurrentCell(nextCell);
                 return nextCell;
             }
@@ -93,7 +76,7 @@ public class CircleMovementBehaviour extends MovementBehaviour {
             if (step > 7) step = 0;
             if (step < 0) step = 7;
 
-            nextCell = map.getCell(movementCycle.get(step));
+            nextCell = cycleCell(step);
         }
         step += direction;
 
@@ -115,10 +98,8 @@ public class CircleMovementBehaviour extends MovementBehaviour {
 
         super.setCurrentCell(cell);
 
-        movementCycle.stream().forEach(pos -> {
-            pos.setX(pos.getX() - xDiff);
-            pos.setY(pos.getY() - yDiff);
-        });
+        centreX -= xDiff;
+        centreY -= yDiff;
     }
     
 }
@@ -9,6 +9,7 @@ import dungeonmania.DungeonMap;
  */
 public class FleeMovementBehaviour extends MovementBehaviour {
     private DungeonMap map;
+    private int[] neighbours = new int[4];
 
     public FleeMovementBehaviour(int precedence, DungeonMap map, Cell initialCell)
     {
@@ -18,13 +19,18 @@ public class FleeMovementBehaviour extends MovementBehaviour {
 
     public Cell move()
     {
-        Cell nextCell = map.getNeighbors(getCurrentCell()).stream()
-            .filter(c -> !c.isBlocking())
-            .max(
-                (c1, c2) -> 
-                Integer.compare(c1.getPlayerDistance(), c2.getPlayerDistance())
-            ).get();
-        assert nextCell != null;
+        // pick the cell furthest away from the player, staying put is an option
+        int current = getCurrentCell().getIndex();
+        int next = -1;
+        int count = map.getNeighbourIndices(current, neighbours);
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (map.isBlocking(n)) continue;
+            if (next == -1 || map.getPlayerDistance(n) > map.getPlayerDistance(next)) next = n;
+        }
+        if (next == -1 || map.getPlayerDistance(current) > map.getPlayerDistance(next)) next = current;
+
+        Cell nextCell = map.getCellByIndex(next);
         
         setCurrentCell(nextCell);
 
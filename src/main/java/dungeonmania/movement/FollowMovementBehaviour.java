@@ -1,7 +1,6 @@
 package dungeonmania.movement;
 
-import java.util.List;
-
+import dungeonmania.CachedPath;
 import dungeonmania.Cell;
 import dungeonmania.DungeonMap;
 
@@ -11,6 +10,7 @@ import dungeonmania.DungeonMap;
  */
 public class FollowMovementBehaviour extends MovementBehaviour {
     private DungeonMap map;
+    private CachedPath cachedPath = new CachedPath();
 
     public FollowMovementBehaviour(int precedence, DungeonMap map, Cell initialCell)
     {
@@ -21,18 +21,9 @@ public class FollowMovementBehaviour extends MovementBehaviour {
     public Cell move()
     {
         // Get second cell of the path
-        Cell next;
-        List<Cell> path = map.findPath(getCurrentCell(), map.getPlayerCell());
-        if (path != null) {
-            if (path.size() == 1) next = getCurrentCell();
-            else next = map.findPath(getCurrentCell(), map.getPlayerCell()).get(1);
-        } else {
-            next = map.getNeighbors(getCurrentCell()).stream()
-                .filter(cell -> !cell.isBlocking())
-                .min(
-                    (c1, c2) -> 
-                    Integer.compare(c1.getTravelCost(), c2.getTravelCost())
-                ).get();
+        Cell next = map.stepTowardsPlayer(getCurrentCell(), cachedPath);
+        if (next == null) {
+            next = cheapestNeighbour(map, getCurrentCell());
         }
 
         if (next.getPosition().squareDistance(this.getCurrentCell().getPosition()) > 1) {
@@ -41,8 +32,16 @@ public class FollowMovementBehaviour extends MovementBehaviour {
 
         assert next != null;
 
+        // walking onto a portal ends on its pair, like the player
+        next = map.getLandingCell(next);
+        if (next == null) return this.getCurrentCell();
         setCurrentCell(next);
 
         return next;
     }
+
+    @Override
+    public CachedPath getSearchCache() {
+        return cachedPath;
+    }
 }
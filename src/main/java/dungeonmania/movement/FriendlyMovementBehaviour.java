@@ -1,5 +1,6 @@
 package dungeonmania.movement;
 
+import dungeonmania.CachedPath;
 import dungeonmania.Cell;
 import dungeonmania.DungeonMap;
 
@@ -9,6 +10,7 @@ import dungeonmania.DungeonMap;
  */
 public class FriendlyMovementBehaviour extends MovementBehaviour {
     private DungeonMap map;
+    private CachedPath cachedPath = new CachedPath();
 
     public FriendlyMovementBehaviour(int precedence, DungeonMap map, Cell initialCell) {
         super(precedence, initialCell);
@@ -23,27 +25,31 @@ public class FriendlyMovementBehaviour extends MovementBehaviour {
         if (currentCell.getPlayerDistance() == 1) return currentCell;
         if (currentCell.getPlayerDistance() == 0) {
             // move one cell away.
-            return map.getNeighbors(currentCell).stream()
-                .filter(c -> !c.isBlocking() && c.getPlayerDistance() == 1)
-                .findAny().get();
+            int[] neighbours = new int[4];
+            int count = map.getNeighbourIndices(currentCell.getIndex(), neighbours);
+            for (int i = 0; i < count; i++) {
+                int n = neighbours[i];
+                if (map.canWalkOnto(n) && map.getPlayerDistance(n) == 1) return map.getCellByIndex(n);
+            }
+            return currentCell;
         }
 
         // Get second cell of the path
-        if (map.findPath(getCurrentCell(), map.getPlayerCell()) != null) 
-            nextCell = map.findPath(getCurrentCell(), map.getPlayerCell()).get(1);
-        else 
-            nextCell = map.getNeighbors(getCurrentCell()).stream()
-                .filter(cell -> !cell.isBlocking())
-                .min(
-                    (c1, c2) -> 
-                    Integer.compare(c1.getTravelCost(), c2.getTravelCost())
-                ).get();
+        nextCell = map.stepTowardsPlayer(getCurrentCell(), cachedPath);
+        if (nextCell == null)
+            nextCell = cheapestNeighbour(map, getCurrentCell());
 
         assert nextCell != null;
 
+        nextCell = map.getLandingCell(nextCell);
+        if (nextCell == null) return currentCell;
         setCurrentCell(nextCell);
 
         return nextCell;
     }
-    
+
+    @Override
+    public CachedPath getSearchCache() {
+        return cachedPath;
+    }
 }
@@ -1,6 +1,8 @@
 package dungeonmania.movement;
 
+import dungeonmania.CachedPath;
 import dungeonmania.Cell;
+import dungeonmania.DungeonMap;
 
 /**
  * Movement strategies have a precedence to handle multiple potions being taken
@@ -57,4 +59,40 @@ public abstract class MovementBehaviour {
     public int getPrecendence() {
         return this.precedence;
     }
+
+    /**
+     * @return the cached path of the behaviour if it searches for a path to
+     *         the player (see DungeonMap.planSteps), null if it doesn't
+     */
+    public CachedPath getSearchCache() {
+        return null;
+    }
+
+    /**
+     * Used when there is no path to follow. Staying on the current cell is an
+     * option. On ties, the first cell in the order UP, DOWN, LEFT, RIGHT, NONE
+     * is picked.
+     * 
+     * @param map
+     * @param cell
+     * @return the cell around cell with the lowest travel cost that can be
+     *         walked onto (see DungeonMap.canWalkOnto), or cell if there is
+     *         none
+     */
+    protected static Cell cheapestNeighbour(DungeonMap map, Cell cell) {
+        int[] neighbours = new int[4];
+        int count = map.getNeighbourIndices(cell.getIndex(), neighbours);
+
+        int cheapest = -1;
+        for (int i = 0; i < count; i++) {
+            int n = neighbours[i];
+            if (!map.canWalkOnto(n)) continue;
+            if (cheapest == -1 || map.getTravelCost(n) < map.getTravelCost(cheapest)) cheapest = n;
+        }
+        if (cheapest == -1 || map.getTravelCost(cell.getIndex()) < map.getTravelCost(cheapest)) {
+            return cell;
+        }
+
+        return map.getCellByIndex(cheapest);
+    }
 }
@@ -1,17 +1,15 @@
 package dungeonmania.movement;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 import dungeonmania.Cell;
 import dungeonmania.Dungeon;
-import dungeonmania.Utils;
+import dungeonmania.DungeonMap;
 
 /**
  * Represents a random movement behaviour that follows no pattern.
  */
 public class RandomMovementBehaviour extends MovementBehaviour {
     private Dungeon dungeon;
+    private int[] neighbours = new int[4];
 
     public RandomMovementBehaviour(int precedence, Dungeon dungeon, Cell initialCell)
     {
@@ -20,16 +18,20 @@ public class RandomMovementBehaviour extends MovementBehaviour {
     }
 
     public Cell move() {
-        Cell nextCell;
-        List<Cell> availableCells = this.dungeon.getMap().getCellsAround(getCurrentCell())
-            .filter(cell -> !cell.isBlocking())
-            .collect(Collectors.toList());
+        DungeonMap map = this.dungeon.getMap();
+        int count = map.getNeighbourIndices(getCurrentCell().getIndex(), neighbours);
+
+        // keep the non blocking cells at the front of the buffer
+        int available = 0;
+        for (int i = 0; i < count; i++) {
+            if (!map.isBlocking(neighbours[i])) neighbours[available++] = neighbours[i];
+        }
 
-        if (availableCells.size() == 0) {
+        if (available == 0) {
             return getCurrentCell();
         }
 
-        nextCell = Utils.choose(availableCells, this.dungeon.getRandom());
+        Cell nextCell = map.getCellByIndex(neighbours[this.dungeon.getRandom().nextInt(available)]);
         setCurrentCell(nextCell);
 
         return nextCell;
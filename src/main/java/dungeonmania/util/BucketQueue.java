@@ -0,0 +1,101 @@
+package dungeonmania.util;
+
+import java.util.Arrays;
+
+/**
+ * Priority queue of ints for Dial's algorithm: the keys are ints that never go
+ * below the key of the last item polled, and never more than maxStep above
+ * it (in a shortest path search, maxStep is the highest edge cost).
+ *
+ * The items are kept in maxStep + 1 buckets used in a circle, one per key, so
+ * adding and polling are constant time (polling skips the empty buckets, at
+ * most maxStep of them). Items with the same key come out in the order they
+ * were added.
+ */
+public class BucketQueue {
+
+    private int[][] buckets;
+    private int[] heads;
+    private int[] tails;
+    private int size = 0;
+    /**
+     * key of the bucket being polled from
+     */
+    private int current = 0;
+
+    public BucketQueue(int maxStep) {
+        clear(maxStep);
+    }
+
+    /**
+     * Empties the queue
+     *
+     * @param maxStep the highest difference between a key that is added and
+     *                the key of the last item polled
+     */
+    public void clear(int maxStep) {
+        int count = maxStep + 1;
+        if (buckets == null || buckets.length != count) {
+            buckets = new int[count][4];
+            heads = new int[count];
+            tails = new int[count];
+        } else {
+            Arrays.fill(heads, 0);
+            Arrays.fill(tails, 0);
+        }
+        size = 0;
+        current = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param item
+     * @param key  between getKey() and getKey() + maxStep
+     */
+    public void add(int item, int key) {
+        assert key >= current && key - current < buckets.length : "key out of the range of the queue";
+        int b = key % buckets.length;
+        if (tails[b] == buckets[b].length) {
+            if (heads[b] > 0) {
+                // make room at the front first
+                System.arraycopy(buckets[b], heads[b], buckets[b], 0, tails[b] - heads[b]);
+                tails[b] -= heads[b];
+                heads[b] = 0;
+            }
+            if (tails[b] == buckets[b].length) buckets[b] = Arrays.copyOf(buckets[b], tails[b] * 2);
+        }
+        buckets[b][tails[b]++] = item;
+        size++;
+    }
+
+    /**
+     * The queue mustn't be empty
+     *
+     * @return the item with the lowest key (the first one added among them)
+     */
+    public int poll() {
+        assert size > 0 : "poll on an empty queue";
+        int b = current % buckets.length;
+        while (heads[b] == tails[b]) {
+            current++;
+            b = current % buckets.length;
+        }
+        int item = buckets[b][heads[b]++];
+        if (heads[b] == tails[b]) {
+            heads[b] = 0;
+            tails[b] = 0;
+        }
+        size--;
+        return item;
+    }
+
+    /**
+     * @return the key of the last item polled
+     */
+    public int getKey() {
+        return current;
+    }
+}
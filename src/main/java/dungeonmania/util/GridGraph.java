@@ -0,0 +1,68 @@
+package dungeonmania.util;
+
+/**
+ * A grid seen as a graph for the path finders: squares are numbered
+ * row after row (index = y * width + x) and each square is linked to the
+ * squares above, below, left and right of it.
+ *
+ * Some squares (portals) also move whoever walks onto them to another square,
+ * see getTeleport.
+ */
+public interface GridGraph {
+
+    /**
+     * @return the number of squares
+     */
+    public int getSize();
+
+    /**
+     * @return the number of squares in a row
+     */
+    public int getWidth();
+
+    /**
+     * @param index of a square
+     * @param out   at least 4 long, gets the indices of the neighbours in the
+     *              order UP, DOWN, LEFT, RIGHT
+     * @return the number of neighbours written to out
+     */
+    public int getNeighbourIndices(int index, int[] out);
+
+    /**
+     * @param index of a square
+     * @return true if the square can't be walked onto
+     */
+    public boolean isBlocking(int index);
+
+    /**
+     * @param index of a square
+     * @return the cost to walk onto the square
+     */
+    public int getTravelCost(int index);
+
+    /**
+     * @return a lower bound of the travel cost of every square
+     */
+    public int getMinTravelCost();
+
+    /**
+     * @return an upper bound of the travel cost of every square
+     */
+    public int getMaxTravelCost();
+
+    /**
+     * Walking onto a portal costs the portal's travel cost and ends on the
+     * square it is paired with, at no extra cost. A path that starts on a
+     * portal or ends on it doesn't teleport.
+     *
+     * @param index of a square
+     * @return the square whoever walks onto index ends up on, -1 if it is
+     *         index itself
+     */
+    public int getTeleport(int index);
+
+    /**
+     * @return true if getTeleport might not return -1 for some square
+     */
+    public boolean hasTeleports();
+}
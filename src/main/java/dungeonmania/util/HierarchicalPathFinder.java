@@ -0,0 +1,798 @@
+package dungeonmania.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Hierarchical path finding (HPA*) on a GridGraph, for maps too big for a
+ * full search per entity per tick.
+ *
+ * The grid is cut in square sectors. Where two sectors touch, each run of
+ * squares that are open on both sides gets an entrance (the middle of the
+ * run, on both sides of the border). The entrances are the nodes of an
+ * abstract graph: two entrances of the same sector are linked with the cost
+ * of the cheapest path between them inside the sector, and two entrances
+ * next to each other across a border are linked with the cost of the step.
+ *
+ * Portals are part of the abstract graph too (see GridGraph.getTeleport).
+ * Stepping onto a portal lands on its pair, so the local searches never step
+ * onto one (unless it is the target), and the open squares next to a portal
+ * are nodes of their sector: from them, the step onto the portal is an
+ * abstract edge to its pair, which is a node as well (standing on a portal
+ * doesn't teleport). A portal whose pair is blocking can't be stepped onto,
+ * the same as in PathFinder.
+ *
+ * A query (see nextStep) searches the sectors of the start and of the target
+ * locally, then the abstract graph, and only turns the first abstract edge
+ * back into squares, which is all an entity needs to move. The paths are
+ * close to the cheapest but not always the cheapest, as they go through the
+ * entrances (or stay in a sector the start and the target share).
+ *
+ * Sectors are rebuilt lazily: the grid reports the squares whose blocking
+ * state or travel cost changed, and the portals that moved (see
+ * cellChanged), and only the sectors of those squares (and the sectors
+ * across, for squares on a border) are rebuilt on the next query (or by
+ * prepare, which can also rebuild them a few at a time).
+ *
+ * Both the queries and the rebuilds can be given a number of squares to
+ * expand at most (see Query.setExpansionLimit and prepare(int)), for callers
+ * that share a budget between searches.
+ *
+ * Threads: the scratch arrays of a search are in a Query, nextStep uses the
+ * finder's own. Once the finder is prepared, several queries (see newQuery)
+ * can run at the same time, each on one thread, as long as the grid doesn't
+ * change meanwhile.
+ *
+ * Memory: the local searches only ever look at one sector, so their arrays
+ * are sized to one sector and indexed by the offset in it (see local). The
+ * abstract search is on the nodes, which are numbered from 0 sector after
+ * sector (see nodeBase), so its arrays are sized to the number of nodes.
+ * Nothing is sized to the whole grid.
+ */
+public class HierarchicalPathFinder {
+
+    public static final int DEFAULT_SECTOR_SIZE = 16;
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private GridGraph grid;
+    private int width;
+    private int height;
+    private int sectorSize;
+    private int sectorsX;
+    private int sectorsY;
+
+    /**
+     * indices of the nodes of each sector: the entrances, then the squares
+     * next to a portal and the portals (see findNodes)
+     */
+    private int[][] nodes;
+    /**
+     * for each sector with k nodes, k * k costs: from node a to node b at
+     * a * k + b
+     */
+    private int[][] intraCosts;
+    /**
+     * sectors whose nodes have to be found again, then sectors whose costs
+     * between nodes have to be computed again (see prepare)
+     */
+    private BitSet dirty = new BitSet();
+    private BitSet unlinked = new BitSet();
+    /**
+     * the sector of unlinked whose costs are being computed, and how many
+     * rows of them are done (see prepare(int))
+     */
+    private int linking = -1;
+    private int linkedRows = 0;
+    /**
+     * squares scanned or expanded by the last prepare
+     */
+    private int prepared = 0;
+    /**
+     * id of the first node of each sector: node a of a sector is
+     * nodeBase[sector] + a. Recomputed after each rebuild
+     */
+    private int[] nodeBase;
+    private int nodeCount = 0;
+    /**
+     * square and sector of each node, by id
+     */
+    private int[] nodeSquares = new int[0];
+    private int[] nodeSectors = new int[0];
+    /**
+     * used by nextStep
+     */
+    private Query query;
+    /**
+     * used for the local searches of the rebuilds, never limited
+     */
+    private Query rebuild;
+
+    /**
+     * @param grid
+     * @param sectorSize width and height of the sectors
+     */
+    public HierarchicalPathFinder(GridGraph grid, int sectorSize) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getSize() / width;
+        this.sectorSize = sectorSize;
+        this.sectorsX = (width + sectorSize - 1) / sectorSize;
+        this.sectorsY = (height + sectorSize - 1) / sectorSize;
+
+        int sectors = sectorsX * sectorsY;
+        this.nodes = new int[sectors][];
+        this.intraCosts = new int[sectors][];
+        this.nodeBase = new int[sectors];
+        dirty.set(0, sectors);
+        this.query = new Query();
+        this.rebuild = new Query();
+    }
+
+    public HierarchicalPathFinder(GridGraph grid) {
+        this(grid, DEFAULT_SECTOR_SIZE);
+    }
+
+    /**
+     * Called by the grid whenever a square starts or stops being blocking, its
+     * travel cost changes, or it becomes or stops being a portal (for a
+     * portal, the grid also reports it when its pair starts or stops being
+     * blocking). Its sector is rebuilt on the next query, and so
+     * is the sector across if the square is on a border.
+     *
+     * @param index of the square
+     */
+    public void cellChanged(int index) {
+        int sector = sectorOf(index);
+        int x = index % width;
+        int y = index / width;
+        dirty.set(sector);
+        // the entrances on a border are shared with the sector across it
+        if (x % sectorSize == 0 && x > 0) dirty.set(sector - 1);
+        if (x % sectorSize == sectorSize - 1 && x < width - 1) dirty.set(sector + 1);
+        if (y % sectorSize == 0 && y > 0) dirty.set(sector - sectorsX);
+        if (y % sectorSize == sectorSize - 1 && y < height - 1) dirty.set(sector + sectorsX);
+    }
+
+    /**
+     * The first step of a path from from to to, see Query.nextStep
+     *
+     * @param from index of the square to start from
+     * @param to   index of the target square
+     * @return index of the next square, from itself if from == to, -1 if no
+     *         path was found
+     */
+    public int nextStep(int from, int to) {
+        return query.nextStep(from, to);
+    }
+
+    /**
+     * @return the cost of the path found by the last nextStep,
+     *         Integer.MAX_VALUE if none was found
+     */
+    public int getLastCost() {
+        return query.getLastCost();
+    }
+
+    /**
+     * see Query.setExpansionLimit, for nextStep
+     */
+    public void setExpansionLimit(int limit) {
+        query.setExpansionLimit(limit);
+    }
+
+    /**
+     * @return true if the last nextStep gave up, see Query.isAborted
+     */
+    public boolean isAborted() {
+        return query.isAborted();
+    }
+
+    /**
+     * @return the number of squares the last nextStep expanded
+     */
+    public int getExpanded() {
+        return query.getExpanded();
+    }
+
+    /**
+     * @return scratch arrays for searches on another thread than the other
+     *         queries (see prepare)
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    /**
+     * @return the number of nodes, for tests and benchmarks
+     */
+    public int getNodeCount() {
+        prepare();
+        return nodeCount;
+    }
+
+    /**
+     * Rebuilds the sectors that changed since the last query. Queries do it
+     * themselves, but it has to be done before they run in parallel.
+     */
+    public void prepare() {
+        prepare(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Rebuilds the sectors that changed since the last query, as long as it
+     * takes less than limit squares scanned or expanded. Each step is only
+     * started if it fits, counting a whole sector for finding the nodes of a
+     * sector and for each row of its costs. The next call picks up from
+     * there, so limit has to be a sector at least.
+     *
+     * @param limit the most squares to scan or expand, Integer.MAX_VALUE for
+     *              no limit
+     * @return false if the limit was hit before the rebuild was over, the
+     *         queries can't run then
+     */
+    public boolean prepare(int limit) {
+        prepared = 0;
+        // brings the grid's portals up to date first, which reports the ones
+        // that moved
+        grid.hasTeleports();
+        if (dirty.isEmpty() && unlinked.isEmpty()) return true;
+        int area = sectorSize * sectorSize;
+        // nodes first, the costs between them need the ones of the neighbours
+        // too
+        for (int sector = dirty.nextSetBit(0); sector >= 0; sector = dirty.nextSetBit(sector + 1)) {
+            if (limit - prepared < area) return false;
+            nodes[sector] = findNodes(sector);
+            prepared += area;
+            dirty.clear(sector);
+            unlinked.set(sector);
+            if (sector == linking) linking = -1;
+        }
+        for (int sector = unlinked.nextSetBit(0); sector >= 0; sector = unlinked.nextSetBit(sector + 1)) {
+            int k = nodes[sector].length;
+            if (linking != sector) {
+                linking = sector;
+                linkedRows = 0;
+                intraCosts[sector] = new int[k * k];
+            }
+            for (; linkedRows < k; linkedRows++) {
+                if (limit - prepared < area) return false;
+                computeIntraCosts(sector, linkedRows);
+                prepared += rebuild.expanded;
+            }
+            unlinked.clear(sector);
+            linking = -1;
+        }
+        numberNodes();
+        return true;
+    }
+
+    /**
+     * @return the number of squares the last prepare scanned or expanded
+     */
+    public int getPrepared() {
+        return prepared;
+    }
+
+    /**
+     * Gives the nodes their ids (see nodeBase)
+     */
+    private void numberNodes() {
+        nodeCount = 0;
+        for (int sector = 0; sector < nodes.length; sector++) {
+            nodeBase[sector] = nodeCount;
+            nodeCount += nodes[sector].length;
+        }
+        if (nodeSquares.length < nodeCount) {
+            int capacity = Math.max(nodeCount, nodeSquares.length * 2);
+            nodeSquares = new int[capacity];
+            nodeSectors = new int[capacity];
+        }
+        for (int sector = 0; sector < nodes.length; sector++) {
+            for (int a = 0; a < nodes[sector].length; a++) {
+                nodeSquares[nodeBase[sector] + a] = nodes[sector][a];
+                nodeSectors[nodeBase[sector] + a] = sector;
+            }
+        }
+    }
+
+    /**
+     * @return the squares of the sector that are nodes: the entrances, on any
+     *         of its 4 borders, then the open squares next to a portal that
+     *         can be stepped onto, and those portals
+     */
+    private int[] findNodes(int sector) {
+        int x0 = (sector % sectorsX) * sectorSize;
+        int y0 = (sector / sectorsX) * sectorSize;
+        int x1 = Math.min(x0 + sectorSize, width) - 1;
+        int y1 = Math.min(y0 + sectorSize, height) - 1;
+
+        int[] found = new int[16];
+        int count = 0;
+        // top, bottom, left, right: (first square, step along the border,
+        // offset to the square across)
+        int[][] borders = {
+            { y0 > 0 ? y0 * width + x0 : -1, 1, -width, x1 - x0 + 1 },
+            { y1 < height - 1 ? y1 * width + x0 : -1, 1, width, x1 - x0 + 1 },
+            { x0 > 0 ? y0 * width + x0 : -1, width, -1, y1 - y0 + 1 },
+            { x1 < width - 1 ? y0 * width + x1 : -1, width, 1, y1 - y0 + 1 },
+        };
+        for (int[] border : borders) {
+            if (border[0] == -1) continue;
+            int runStart = -1;
+            for (int i = 0; i <= border[3]; i++) {
+                int index = border[0] + i * border[1];
+                boolean open = i < border[3] && isOpen(index) && isOpen(index + border[2]);
+                if (open && runStart == -1) runStart = i;
+                if (!open && runStart != -1) {
+                    int entrance = border[0] + (runStart + i - 1) / 2 * border[1];
+                    if (slot(found, count, entrance) == -1) {
+                        if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                        found[count++] = entrance;
+                    }
+                    runStart = -1;
+                }
+            }
+        }
+        if (!grid.hasTeleports()) return Arrays.copyOf(found, count);
+
+        int[] around = new int[4];
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int index = y * width + x;
+                if (grid.isBlocking(index)) continue;
+                boolean node = isPortal(index);
+                if (!node && grid.getTeleport(index) == -1) {
+                    int count4 = grid.getNeighbourIndices(index, around);
+                    for (int i = 0; i < count4 && !node; i++) {
+                        node = isPortal(around[i]);
+                    }
+                }
+                if (node && slot(found, count, index) == -1) {
+                    if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                    found[count++] = index;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return whether the square is neither blocking nor a portal, so it can
+     *         be part of an entrance
+     */
+    private boolean isOpen(int index) {
+        return !grid.isBlocking(index) && grid.getTeleport(index) == -1;
+    }
+
+    /**
+     * @return whether the square is a portal that can be stepped onto: it
+     *         and its pair aren't blocking
+     */
+    private boolean isPortal(int index) {
+        int pair = grid.getTeleport(index);
+        return pair != -1 && !grid.isBlocking(index) && !grid.isBlocking(pair);
+    }
+
+    /**
+     * Fills row a of the costs between the nodes of the sector: from node a
+     * to each of them
+     */
+    private void computeIntraCosts(int sector, int a) {
+        int[] sectorNodes = nodes[sector];
+        int k = sectorNodes.length;
+        int[] costs = intraCosts[sector];
+        rebuild.newSearch();
+        rebuild.expanded = 0;
+        rebuild.localSearch(sectorNodes[a], sector, -1);
+        for (int b = 0; b < k; b++) {
+            int local = local(sectorNodes[b], sector);
+            costs[a * k + b] = rebuild.localSeen[local] == rebuild.search ? rebuild.localCosts[local] : UNREACHABLE;
+        }
+    }
+
+    /**
+     * @return the square an entity stepping onto index ends up on (its pair
+     *         for a portal), -1 if it can't step onto it because the pair is
+     *         blocking. index isn't the target, stepping onto the target
+     *         never teleports
+     */
+    private int landing(int index) {
+        int pair = grid.getTeleport(index);
+        if (pair == -1) return index;
+        return grid.isBlocking(pair) ? -1 : pair;
+    }
+
+    /**
+     * @return whether b is one of the 4 neighbours of a
+     */
+    private boolean isNeighbour(int a, int b) {
+        int d = Math.abs(a - b);
+        return (d == 1 && a / width == b / width) || d == width;
+    }
+
+    private int sectorOf(int index) {
+        return (index / width) / sectorSize * sectorsX + (index % width) / sectorSize;
+    }
+
+    /**
+     * @param index  of a square of the sector
+     * @param sector
+     * @return the offset of the square in its sector, row after row (the
+     *         sectors on the right and bottom edges can be smaller, the
+     *         offsets still have sectorSize columns)
+     */
+    private int local(int index, int sector) {
+        int x = index % width - (sector % sectorsX) * sectorSize;
+        int y = index / width - (sector / sectorsX) * sectorSize;
+        return y * sectorSize + x;
+    }
+
+    private static int slot(int[] sectorNodes, int node) {
+        return slot(sectorNodes, sectorNodes.length, node);
+    }
+
+    private static int slot(int[] sectorNodes, int count, int node) {
+        for (int i = 0; i < count; i++) {
+            if (sectorNodes[i] == node) return i;
+        }
+        return -1;
+    }
+
+    private boolean inSector(int index, int sector) {
+        return sectorOf(index) == sector;
+    }
+
+    /**
+     * Scratch arrays of the searches, see newQuery
+     */
+    public class Query {
+
+        // local searches (inside a sector), by offset in the sector (see
+        // local), stamped like in PathFinder
+        private int[] localCosts;
+        private int[] localPredecessors;
+        private int[] localSeen;
+        private int[] reverseCosts;
+        private int[] reverseSeen;
+        // abstract search, by node id, grown with the number of nodes
+        private int[] abstractCosts = new int[0];
+        private int[] abstractFirst = new int[0];
+        private int[] abstractSeen = new int[0];
+        private IntHeap heap = new IntHeap();
+        private int search = 0;
+
+        private BucketQueue buckets = null;
+        private int[] neighbours = new int[4];
+        private int[] around = new int[4];
+        private int lastCost = UNREACHABLE;
+        private int expanded = 0;
+        private int expansionLimit = Integer.MAX_VALUE;
+        private boolean aborted = false;
+
+        private Query() {
+            int area = sectorSize * sectorSize;
+            this.localCosts = new int[area];
+            this.localPredecessors = new int[area];
+            this.localSeen = new int[area];
+            this.reverseCosts = new int[area];
+            this.reverseSeen = new int[area];
+        }
+
+        /**
+         * The first step of a path from from to to. The starting square can be
+         * blocking, the others can't. Prepares the finder first if it wasn't.
+         *
+         * @param from index of the square to start from
+         * @param to   index of the target square
+         * @return index of the next square, from itself if from == to, -1 if no
+         *         path was found or the search was aborted (see
+         *         setExpansionLimit)
+         */
+        public int nextStep(int from, int to) {
+            lastCost = UNREACHABLE;
+            expanded = 0;
+            aborted = false;
+            if (from == to) {
+                lastCost = 0;
+                return from;
+            }
+            if (grid.isBlocking(to)) return -1;
+            prepare();
+            if (abstractCosts.length < nodeCount) {
+                abstractCosts = new int[nodeSquares.length];
+                abstractFirst = new int[nodeSquares.length];
+                // stamps of the old ids are meaningless, start from 0
+                abstractSeen = new int[nodeSquares.length];
+            }
+            if (grid.isBlocking(from)) return nextStepFromBlocking(from, to);
+            return search(from, to);
+        }
+
+        /**
+         * A blocking square isn't part of any entrance, so a path from it
+         * could leave its sector without going through one: each neighbour is
+         * tried as the start instead.
+         */
+        private int nextStepFromBlocking(int from, int to) {
+            int count = grid.getNeighbourIndices(from, around);
+            int best = UNREACHABLE;
+            int bestStep = -1;
+            for (int i = 0; i < count; i++) {
+                int n = around[i];
+                if (grid.isBlocking(n)) continue;
+                int cost = grid.getTravelCost(n);
+                if (n != to) {
+                    // stepping onto a portal lands on its pair
+                    int landing = landing(n);
+                    if (landing == -1) continue;
+                    if (search(landing, to) == -1) {
+                        if (aborted) return -1;
+                        continue;
+                    }
+                    cost += lastCost;
+                }
+                if (cost < best) {
+                    best = cost;
+                    bestStep = n;
+                }
+            }
+            lastCost = best;
+            return bestStep;
+        }
+
+        /**
+         * nextStep, from a square that isn't blocking
+         */
+        private int search(int from, int to) {
+            lastCost = UNREACHABLE;
+            if (from == to) {
+                lastCost = 0;
+                return from;
+            }
+            newSearch();
+
+            int fromSector = sectorOf(from);
+            int toSector = sectorOf(to);
+            localSearch(from, fromSector, to);
+            if (!aborted) reverseSearch(to, toSector);
+            if (aborted) return -1;
+
+            // staying in the sector, if both are in the same one. bestFirst is
+            // the square the first abstract edge leads to
+            int best = UNREACHABLE;
+            int bestFirst = to;
+            int toLocal = local(to, toSector);
+            if (fromSector == toSector && localSeen[toLocal] == search) best = localCosts[toLocal];
+
+            // abstract search, from the nodes the start can reach
+            heap.clear();
+            int[] fromNodes = nodes[fromSector];
+            for (int a = 0; a < fromNodes.length; a++) {
+                int local = local(fromNodes[a], fromSector);
+                if (localSeen[local] != search || grid.isBlocking(fromNodes[a])) continue;
+                reachNode(nodeBase[fromSector] + a, localCosts[local], fromNodes[a]);
+            }
+            while (!heap.isEmpty()) {
+                int id = heap.poll();
+                int cost = (int) (heap.getKey() >>> 32);
+                if (cost > abstractCosts[id]) continue; // outdated entry
+                if (cost >= best) break;
+                if (!expand()) return -1;
+
+                int node = nodeSquares[id];
+                int sector = nodeSectors[id];
+                // the first abstract edge leaves from the start if it is a node
+                int first = node == from ? -1 : abstractFirst[id];
+                if (sector == toSector) {
+                    int local = local(node, toSector);
+                    if (reverseSeen[local] == search && reverseCosts[local] != UNREACHABLE
+                            && cost + reverseCosts[local] < best) {
+                        best = cost + reverseCosts[local];
+                        bestFirst = first == -1 ? to : first;
+                    }
+                }
+
+                int[] sectorNodes = nodes[sector];
+                int k = sectorNodes.length;
+                int a = id - nodeBase[sector];
+                for (int b = 0; b < k; b++) {
+                    int intra = intraCosts[sector][a * k + b];
+                    if (b == a || intra == UNREACHABLE) continue;
+                    reachNode(nodeBase[sector] + b, cost + intra, first == -1 ? sectorNodes[b] : first);
+                }
+                // single steps: across a border, onto a portal, or onto the
+                // target
+                int count = grid.getNeighbourIndices(node, neighbours);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (grid.isBlocking(n)) continue;
+                    int stepCost = cost + grid.getTravelCost(n);
+                    if (n == to) {
+                        if (stepCost < best) {
+                            best = stepCost;
+                            bestFirst = first == -1 ? n : first;
+                        }
+                        continue;
+                    }
+                    int landing = landing(n);
+                    if (landing == -1) continue;
+                    int other = sectorOf(landing);
+                    if (landing == n && other == sector) continue;
+                    int b = slot(nodes[other], landing);
+                    if (b == -1) continue;
+                    reachNode(nodeBase[other] + b, stepCost, first == -1 ? n : first);
+                }
+            }
+
+            if (best == UNREACHABLE) return -1;
+            lastCost = best;
+            // the first abstract edge is either a single step, or a path inside
+            // the start's sector
+            if (sectorOf(bestFirst) != fromSector || isNeighbour(from, bestFirst)) return bestFirst;
+            return firstStep(from, bestFirst, fromSector);
+        }
+
+        /**
+         * @return the cost of the path found by the last nextStep of this
+         *         query, Integer.MAX_VALUE if none was found
+         */
+        public int getLastCost() {
+            return lastCost;
+        }
+
+        /**
+         * @param limit the number of squares (and nodes) a nextStep can expand
+         *              before it gives up (see isAborted), Integer.MAX_VALUE
+         *              for no limit
+         */
+        public void setExpansionLimit(int limit) {
+            this.expansionLimit = limit;
+        }
+
+        /**
+         * @return true if the last nextStep gave up because it reached the
+         *         expansion limit
+         */
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        /**
+         * @return the number of squares and nodes whose neighbours were looked
+         *         at by the last nextStep, all its searches together
+         */
+        public int getExpanded() {
+            return expanded;
+        }
+
+        /**
+         * Counts an expansion
+         *
+         * @return false if the limit is reached, the search is aborted
+         */
+        private boolean expand() {
+            if (expanded == expansionLimit) {
+                aborted = true;
+                return false;
+            }
+            expanded++;
+            return true;
+        }
+
+        /**
+         * @param id    of the node, see nodeBase
+         * @param first square of the first abstract edge of the path
+         */
+        private void reachNode(int id, int cost, int first) {
+            if (abstractSeen[id] == search && abstractCosts[id] <= cost) return;
+            abstractSeen[id] = search;
+            abstractCosts[id] = cost;
+            abstractFirst[id] = first;
+            // ties by id, so by sector then by entrance
+            heap.add(id, ((long) cost << 32) | id);
+        }
+
+        /**
+         * @return the square after from on the local path to target, both in
+         *         sector
+         */
+        private int firstStep(int from, int target, int sector) {
+            int step = target;
+            while (localPredecessors[local(step, sector)] != from) {
+                step = localPredecessors[local(step, sector)];
+            }
+            return step;
+        }
+
+        private void newSearch() {
+            if (++search == Integer.MAX_VALUE) {
+                Arrays.fill(localSeen, 0);
+                Arrays.fill(reverseSeen, 0);
+                Arrays.fill(abstractSeen, 0);
+                search = 1;
+            }
+        }
+
+        private BucketQueue buckets() {
+            int maxStep = grid.getMaxTravelCost();
+            if (buckets == null) buckets = new BucketQueue(maxStep);
+            else buckets.clear(maxStep);
+            return buckets;
+        }
+
+        /**
+         * Cheapest costs (and predecessors) from start to the squares of its
+         * sector, without leaving it. Portals aren't stepped onto, except
+         * target
+         *
+         * @param target index of the target square, -1 for none
+         */
+        private void localSearch(int start, int sector, int target) {
+            BucketQueue q = buckets();
+            int local = local(start, sector);
+            localSeen[local] = search;
+            localCosts[local] = 0;
+            localPredecessors[local] = -1;
+            q.add(start, 0);
+
+            while (!q.isEmpty()) {
+                int current = q.poll();
+                int cost = localCosts[local(current, sector)];
+                if (q.getKey() > cost) continue; // outdated entry
+                if (current == target) continue;
+                if (!expand()) return;
+
+                int count = grid.getNeighbourIndices(current, neighbours);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (!inSector(n, sector) || grid.isBlocking(n)) continue;
+                    if (n != target && grid.getTeleport(n) != -1) continue;
+                    int newCost = cost + grid.getTravelCost(n);
+                    int l = local(n, sector);
+                    if (localSeen[l] != search || newCost < localCosts[l]) {
+                        localSeen[l] = search;
+                        localCosts[l] = newCost;
+                        localPredecessors[l] = current;
+                        q.add(n, newCost);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Cheapest costs from the squares of the sector to target (which isn't
+         * blocking), without leaving the sector. Blocking squares and portals
+         * (other than target) aren't stepped through.
+         */
+        private void reverseSearch(int target, int sector) {
+            BucketQueue q = buckets();
+            int local = local(target, sector);
+            reverseSeen[local] = search;
+            reverseCosts[local] = 0;
+            q.add(target, 0);
+
+            while (!q.isEmpty()) {
+                int current = q.poll();
+                int cost = reverseCosts[local(current, sector)];
+                if (q.getKey() > cost) continue; // outdated entry
+                if (grid.isBlocking(current)) continue;
+                if (current != target && grid.getTeleport(current) != -1) continue;
+                if (!expand()) return;
+
+                int newCost = cost + grid.getTravelCost(current);
+                int count = grid.getNeighbourIndices(current, neighbours);
+                for (int i = 0; i < count; i++) {
+                    int n = neighbours[i];
+                    if (!inSector(n, sector)) continue;
+                    int l = local(n, sector);
+                    if (reverseSeen[l] != search || newCost < reverseCosts[l]) {
+                        reverseSeen[l] = search;
+                        reverseCosts[l] = newCost;
+                        q.add(n, newCost);
+                    }
+                }
+            }
+        }
+    }
+}
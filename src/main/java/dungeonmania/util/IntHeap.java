@@ -0,0 +1,94 @@
+package dungeonmania.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of ints ordered by a long key, for the searches whose keys
+ * don't fit a BucketQueue (see PathFinder and HierarchicalPathFinder).
+ *
+ * The sift up and sift down are the same as java.util.PriorityQueue's, so
+ * items added with the same key come out in the same order as they would
+ * from a PriorityQueue. No boxing, and the arrays are reused between
+ * searches (see clear).
+ */
+public class IntHeap {
+
+    private int[] items = new int[16];
+    private long[] keys = new long[16];
+    private int size = 0;
+    /**
+     * key of the last item polled
+     */
+    private long key = 0;
+
+    /**
+     * Empties the heap, keeps its arrays
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void add(int item, long key) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        // sift up
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (key >= keys[parent]) break;
+            items[k] = items[parent];
+            keys[k] = keys[parent];
+            k = parent;
+        }
+        items[k] = item;
+        keys[k] = key;
+    }
+
+    /**
+     * The heap mustn't be empty
+     *
+     * @return the item with the lowest key
+     */
+    public int poll() {
+        assert size > 0 : "poll on an empty heap";
+        int result = items[0];
+        key = keys[0];
+        int n = --size;
+        if (n > 0) {
+            int item = items[n];
+            long last = keys[n];
+            // sift down
+            int k = 0;
+            int half = n >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int right = child + 1;
+                if (right < n && keys[child] > keys[right]) child = right;
+                if (last <= keys[child]) break;
+                items[k] = items[child];
+                keys[k] = keys[child];
+                k = child;
+            }
+            items[k] = item;
+            keys[k] = last;
+        }
+        return result;
+    }
+
+    /**
+     * @return the key of the last item polled
+     */
+    public long getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,304 @@
+package dungeonmania.util;
+
+import java.util.Arrays;
+
+/**
+ * Lower bounds of path costs on a GridGraph from a few landmark squares (the
+ * "ALT" heuristic: A*, landmarks, triangle inequality), for PathFinder's ALT
+ * algorithm.
+ *
+ * The cost of the cheapest path from and to each landmark is computed for
+ * every square. As walking onto a square costs that square's travel cost, the
+ * cost from a to b isn't the cost from b to a, so both are kept. Then for any
+ * n, t and landmark L:
+ * <ul>
+ * <li>cost(L, t) <= cost(L, n) + cost(n, t)</li>
+ * <li>cost(n, L) <= cost(n, t) + cost(t, L)</li>
+ * </ul>
+ * which both give a lower bound of cost(n, t), far better than the manhattan
+ * distance in a maze where the path winds around.
+ *
+ * The landmarks are picked far apart: each one is the square whose cost from
+ * the ones picked before is the highest. They are all in the region of the
+ * first open square, the bounds are 0 elsewhere. A change of the grid makes
+ * them invalid (the grid calls invalidate), and computing them again costs
+ * two searches over the whole grid per landmark, so it can be spread over
+ * several calls of update(int), each one searching only so far. The bounds
+ * can't be used until it is over (see isValid). The costs take 2 * count ints
+ * per square. Not thread safe.
+ */
+public class Landmarks {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * steps of an update: looking for the first open square, searching from
+     * it, then searching from and to each landmark
+     */
+    private static final int SCAN = 0;
+    private static final int FIRST = 1;
+    private static final int FROM = 2;
+    private static final int TO = 3;
+
+    private GridGraph grid;
+    private int count;
+    private int[] landmarks;
+    /**
+     * from[i][n]: cost from landmark i to square n
+     */
+    private int[][] from;
+    /**
+     * to[i][n]: cost from square n to landmark i
+     */
+    private int[][] to;
+    private boolean valid = false;
+
+    /**
+     * the update in progress: its step, the landmarks picked so far (the
+     * search of the step is from or to the last one), and nearest[n], the
+     * lowest cost from the landmarks whose searches are done to n
+     */
+    private int step = SCAN;
+    private int[] picked;
+    private int pickedCount = 0;
+    private int[] nearest = null;
+    /**
+     * squares scanned or expanded by the last update
+     */
+    private int expanded = 0;
+
+    private BucketQueue queue = null;
+    private int[] neighbours = new int[4];
+
+    /**
+     * @param grid
+     * @param count number of landmarks, at least 1
+     */
+    public Landmarks(GridGraph grid, int count) {
+        this.grid = grid;
+        this.count = count;
+        this.picked = new int[count];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Called by the grid whenever the blocking state or the travel cost of a
+     * square changes. An update in progress starts over.
+     */
+    public void invalidate() {
+        valid = false;
+        step = SCAN;
+    }
+
+    /**
+     * @return true if the landmarks are up to date, lowerBound can only be
+     *         used then
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return the squares picked as landmarks (fewer than getCount() if the
+     *         grid doesn't have that many open squares)
+     */
+    public int[] getLandmarks() {
+        update();
+        return landmarks;
+    }
+
+    /**
+     * Recomputes the landmarks and their costs if the grid changed
+     */
+    public void update() {
+        update(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Goes on with recomputing the landmarks and their costs if the grid
+     * changed, as long as it takes less than limit squares scanned or
+     * expanded. A pass over the grid (filling the costs of a search, picking
+     * the next landmark) is only started if it fits, so limit has to be
+     * three times the size of the grid at least. The next call picks up from
+     * there.
+     *
+     * @param limit the most squares to scan or expand, Integer.MAX_VALUE for
+     *              no limit
+     * @return true if the landmarks are up to date
+     */
+    public boolean update(int limit) {
+        expanded = 0;
+        if (valid) return true;
+        int size = grid.getSize();
+        while (true) {
+            switch (step) {
+            case SCAN:
+                if (limit - expanded < 2 * size) return false;
+                if (from == null) {
+                    from = new int[count][size];
+                    to = new int[count][size];
+                    nearest = new int[size];
+                }
+                int first = -1;
+                for (int i = 0; i < size && first == -1; i++) {
+                    if (!grid.isBlocking(i)) first = i;
+                }
+                expanded += size;
+                pickedCount = 0;
+                if (first == -1) return finish();
+                // the first landmark is the far end of the grid from the
+                // first open square
+                startSearch(first, from[0]);
+                step = FIRST;
+                break;
+            case FIRST:
+                if (!search(from[0], false, limit)) return false;
+                if (limit - expanded < 3 * size) return false;
+                Arrays.fill(nearest, UNREACHABLE);
+                expanded += size;
+                if (!pick(farthest(from[0]))) return finish();
+                break;
+            case FROM:
+                if (!search(from[pickedCount - 1], false, limit)) return false;
+                if (limit - expanded < size) return false;
+                startSearch(picked[pickedCount - 1], to[pickedCount - 1]);
+                step = TO;
+                break;
+            default:
+                if (!search(to[pickedCount - 1], true, limit)) return false;
+                if (limit - expanded < 3 * size) return false;
+                int[] costs = from[pickedCount - 1];
+                for (int n = 0; n < size; n++) {
+                    nearest[n] = Math.min(nearest[n], costs[n]);
+                }
+                expanded += size;
+                int next = pickedCount < count ? farthest(nearest) : -1;
+                // every open square is a landmark once nearest is 0
+                if (next != -1 && nearest[next] == 0) next = -1;
+                if (!pick(next)) return finish();
+            }
+        }
+    }
+
+    /**
+     * @return the number of squares the last update scanned or expanded
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Starts the searches from and to the next landmark
+     *
+     * @param next square picked as a landmark, -1 if there is none
+     * @return false if there is none
+     */
+    private boolean pick(int next) {
+        // farthest scanned the grid
+        expanded += grid.getSize();
+        if (next == -1) return false;
+        picked[pickedCount++] = next;
+        startSearch(next, from[pickedCount - 1]);
+        step = FROM;
+        return true;
+    }
+
+    private boolean finish() {
+        landmarks = Arrays.copyOf(picked, pickedCount);
+        valid = true;
+        step = SCAN;
+        return true;
+    }
+
+    /**
+     * @return the open square with the highest cost in costs, -1 if they are
+     *         all UNREACHABLE
+     */
+    private int farthest(int[] costs) {
+        int best = -1;
+        for (int n = 0; n < costs.length; n++) {
+            if (costs[n] == UNREACHABLE || grid.isBlocking(n)) continue;
+            if (best == -1 || costs[n] > costs[best]) best = n;
+        }
+        return best;
+    }
+
+    /**
+     * The bound for a search towards target, see PathFinder
+     *
+     * @param index  of a square
+     * @param target of the search
+     * @return a lower bound of the cost of the cheapest path from index to
+     *         target
+     */
+    public int lowerBound(int index, int target) {
+        int bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            int[] f = from[i];
+            if (f[target] != UNREACHABLE && f[index] != UNREACHABLE) {
+                bound = Math.max(bound, f[target] - f[index]);
+            }
+            int[] t = to[i];
+            if (t[index] != UNREACHABLE && t[target] != UNREACHABLE) {
+                bound = Math.max(bound, t[index] - t[target]);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Starts a search from (or towards) a square: fills costs, which is a
+     * pass over the grid
+     */
+    private void startSearch(int start, int[] costs) {
+        Arrays.fill(costs, UNREACHABLE);
+        expanded += costs.length;
+        startQueue();
+        costs[start] = 0;
+        queue.add(start, 0);
+    }
+
+    /**
+     * Dijkstra (with a bucket queue), carrying on with the search started by
+     * startSearch: the same costs as PathFinder, the start isn't checked for
+     * blocking and the other squares are only entered if they aren't
+     * blocking. Backwards, it walks the edges the other way, so the costs are
+     * towards the start (see CostField).
+     *
+     * @return false if the limit was hit before the search was over
+     */
+    private boolean search(int[] costs, boolean backwards, int limit) {
+        while (!queue.isEmpty()) {
+            if (expanded >= limit) return false;
+            int index = queue.poll();
+            int cost = queue.getKey();
+            if (cost > costs[index]) continue; // outdated entry
+            expanded++;
+
+            // backwards, the neighbours can only step onto index if it isn't
+            // blocking
+            if (backwards && grid.isBlocking(index)) continue;
+            int n = grid.getNeighbourIndices(index, neighbours);
+            for (int i = 0; i < n; i++) {
+                int neighbour = neighbours[i];
+                if (!backwards && grid.isBlocking(neighbour)) continue;
+                int newCost = cost + grid.getTravelCost(backwards ? index : neighbour);
+                if (newCost < costs[neighbour]) {
+                    costs[neighbour] = newCost;
+                    queue.add(neighbour, newCost);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void startQueue() {
+        // as many buckets as the highest travel cost on the grid
+        int maxStep = grid.getMaxTravelCost();
+        if (queue == null) queue = new BucketQueue(maxStep);
+        else queue.clear(maxStep);
+    }
+}
@@ -0,0 +1,535 @@
+package dungeonmania.util;
+
+import java.util.Arrays;
+
+/**
+ * Shortest paths on a GridGraph, with plain int arrays: the cost and the
+ * predecessor of each square, and a binary heap of square indices. The path
+ * is rebuilt by following the predecessors back from the target.
+ *
+ * The arrays are sized to the grid once and reused by every search (a search
+ * only touches the squares it reaches, see seen), so a PathFinder should be
+ * kept with its grid. Not thread safe.
+ *
+ * Several algorithms (see Algorithm), they all find a cheapest path but they don't
+ * break ties between equally cheap paths the same way. The default is
+ * DIJKSTRA, so that the paths are the ones findPath always gave; AUTO picks
+ * the fastest one the grid allows for the callers that don't mind.
+ *
+ * DIJKSTRA is the search DungeonMap.findPath first did, down to the order in
+ * which equally cheap squares are explored, so that it gives the same paths:
+ * <ul>
+ * <li>each square is queued once, with the cost it was first reached with. A
+ * cheaper path found later updates its cost and predecessor, but not its place
+ * in the queue;</li>
+ * <li>the heap is the same as java.util.PriorityQueue's (same sift up and sift
+ * down), so squares queued with the same cost come out in the same order;</li>
+ * <li>neighbours are looked at in the order UP, DOWN, LEFT, RIGHT;</li>
+ * <li>the starting square is never checked for blocking, the others are never
+ * entered if they are blocking.</li>
+ * </ul>
+ *
+ * Portals (see GridGraph.getTeleport) are followed by every algorithm:
+ * walking onto a portal reaches the square it is paired with for the cost of
+ * the portal, and the path lists the portal and then that square. A_STAR then
+ * can't use the distance to the target as an estimate, and JUMP_POINT falls
+ * back to it.
+ */
+public class PathFinder {
+
+    public enum Algorithm {
+        /**
+         * explores every direction, see above
+         */
+        DIJKSTRA,
+        /**
+         * explores towards the target first, guided by the manhattan distance
+         * times the minimum travel cost. Among the squares that are as
+         * promising, the closest to the target comes first (the order of the
+         * remaining ties only depends on the map and the query).
+         */
+        A_STAR,
+        /**
+         * Dijkstra's algorithm with a bucket queue (see BucketQueue) instead
+         * of a heap, as travel costs are small integers. Equally cheap squares
+         * are explored in the order they were reached.
+         */
+        DIAL,
+        /**
+         * jump point search: A* that skips along straight lines and only
+         * stops where the walls around force a turn. Only right when all the
+         * squares cost the same, so it falls back to A_STAR as soon as the
+         * grid has swamps with a different cost, or portals.
+         */
+        JUMP_POINT,
+        /**
+         * A_STAR with a better estimate: the lower bound the landmarks give
+         * (see Landmarks, setLandmarks), which follows the walls of a maze
+         * instead of going straight. Same as A_STAR without landmarks, while
+         * they aren't up to date (the search doesn't update them, see
+         * Landmarks.update), or when the grid has portals.
+         */
+        ALT,
+        /**
+         * JUMP_POINT when it is right (every square costs the same and there
+         * are no portals), DIAL otherwise. The fastest of them on the maze
+         * dungeons but the smallest ones (see PathFindingBenchmark), checked
+         * on each search as swamps and portals come and go.
+         */
+        AUTO
+    }
+
+    private GridGraph grid;
+    private Algorithm algorithm = Algorithm.DIJKSTRA;
+    private Landmarks landmarks = null;
+
+    private int[] costs;
+    private int[] predecessors;
+    /**
+     * seen[i] == search if square i was reached by the current search, which
+     * saves clearing costs and predecessors before each search
+     */
+    private int[] seen;
+    private int search = 0;
+
+    /**
+     * A_STAR and DIAL: seen squares whose neighbours were looked at
+     */
+    private int[] closed;
+    private BucketQueue buckets;
+
+    // squares, ordered by the key they were queued with (the cost for
+    // DIJKSTRA)
+    private IntHeap heap = new IntHeap();
+
+    private int[] neighbours = new int[4];
+    /**
+     * if the grid has portals (see GridGraph.getTeleport): entered[i] is the
+     * portal the path to square i went through just before it, -1 if none
+     */
+    private int[] entered = null;
+    /**
+     * set by landing
+     */
+    private int portal = -1;
+    private boolean teleports = false;
+    /**
+     * size of the grid, for the jumps of JUMP_POINT
+     */
+    private int jumpWidth;
+    private int jumpHeight;
+    private int expanded = 0;
+    private int expansionLimit = Integer.MAX_VALUE;
+    private boolean aborted = false;
+
+    public PathFinder(GridGraph grid) {
+        this.grid = grid;
+        this.costs = new int[grid.getSize()];
+        this.predecessors = new int[grid.getSize()];
+        this.seen = new int[grid.getSize()];
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public Landmarks getLandmarks() {
+        return landmarks;
+    }
+
+    /**
+     * @param landmarks used by ALT, on the same grid, null for none
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * @param from index of the square to start from
+     * @param to   index of the target square
+     * @return the indices of the squares from from to to (both included), or
+     *         null if to can't be reached or the search was aborted (see
+     *         setExpansionLimit)
+     */
+    public int[] findPath(int from, int to) {
+        aborted = false;
+        switch (algorithm) {
+        case A_STAR:
+            return findPathAStar(from, to, null);
+        case ALT:
+            if (landmarks == null || !landmarks.isValid() || grid.hasTeleports()) return findPathAStar(from, to, null);
+            return findPathAStar(from, to, landmarks);
+        case DIAL:
+            return findPathDial(from, to);
+        case JUMP_POINT:
+            if (!canJump()) return findPathAStar(from, to, null);
+            return findPathJumpPoint(from, to);
+        case AUTO:
+            return canJump() ? findPathJumpPoint(from, to) : findPathDial(from, to);
+        default:
+            return findPathDijkstra(from, to);
+        }
+    }
+
+    /**
+     * @return whether jump points find a cheapest path on the grid: every
+     *         square costs the same, and there are no portals
+     */
+    private boolean canJump() {
+        return grid.getMinTravelCost() == grid.getMaxTravelCost() && !grid.hasTeleports();
+    }
+
+    private int[] findPathDijkstra(int from, int to) {
+        startSearch();
+        expanded = 0;
+        reach(from, 0, -1);
+        heap.add(from, 0);
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (current == to) return traceback(to);
+            if (expanded == expansionLimit) {
+                aborted = true;
+                return null;
+            }
+            expanded++;
+
+            int count = grid.getNeighbourIndices(current, neighbours);
+            for (int i = 0; i < count; i++) {
+                int n = neighbours[i];
+                if (grid.isBlocking(n)) continue;
+
+                int newCost = costs[current] + grid.getTravelCost(n);
+                n = landing(n, to);
+                if (n == -1) continue;
+                if (seen[n] == search) {
+                    if (newCost < costs[n]) {
+                        reach(n, newCost, current);
+                    }
+                } else {
+                    reach(n, newCost, current);
+                    heap.add(n, newCost);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param bounds lower bounds to use along the manhattan distance, null
+     *               for none
+     */
+    private int[] findPathAStar(int from, int to, Landmarks bounds) {
+        startSearch();
+        if (closed == null) closed = new int[seen.length];
+        expanded = 0;
+        int width = grid.getWidth();
+        jumpWidth = width;
+        jumpHeight = grid.getSize() / width;
+        int toX = to % width;
+        int toY = to / width;
+        // a portal can get closer to the target than the distance says
+        int minCost = grid.hasTeleports() ? 0 : grid.getMinTravelCost();
+
+        reach(from, 0, -1);
+        heap.add(from, aStarKey(0, from, width, toX, toY, minCost, to, bounds));
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (closed[current] == search) continue; // queued again with a lower cost
+            if (current == to) return traceback(to);
+            closed[current] = search;
+            if (expanded == expansionLimit) {
+                aborted = true;
+                return null;
+            }
+            expanded++;
+
+            int count = grid.getNeighbourIndices(current, neighbours);
+            for (int i = 0; i < count; i++) {
+                int n = neighbours[i];
+                if (grid.isBlocking(n)) continue;
+
+                int newCost = costs[current] + grid.getTravelCost(n);
+                n = landing(n, to);
+                if (n == -1 || closed[n] == search) continue;
+                if (seen[n] != search || newCost < costs[n]) {
+                    reach(n, newCost, current);
+                    heap.add(n, aStarKey(newCost, n, width, toX, toY, minCost, to, bounds));
+                }
+            }
+        }
+        return null;
+    }
+
+    private int[] findPathDial(int from, int to) {
+        startSearch();
+        if (closed == null) closed = new int[seen.length];
+        // there are only as many buckets as the highest travel cost on the map
+        int maxStep = grid.getMaxTravelCost();
+        if (buckets == null) buckets = new BucketQueue(maxStep);
+        else buckets.clear(maxStep);
+        expanded = 0;
+
+        reach(from, 0, -1);
+        buckets.add(from, 0);
+
+        while (!buckets.isEmpty()) {
+            int current = buckets.poll();
+            if (closed[current] == search) continue; // queued again with a lower cost
+            if (current == to) return traceback(to);
+            closed[current] = search;
+            if (expanded == expansionLimit) {
+                aborted = true;
+                return null;
+            }
+            expanded++;
+
+            int count = grid.getNeighbourIndices(current, neighbours);
+            for (int i = 0; i < count; i++) {
+                int n = neighbours[i];
+                if (grid.isBlocking(n)) continue;
+
+                int newCost = costs[current] + grid.getTravelCost(n);
+                n = landing(n, to);
+                if (n == -1 || closed[n] == search) continue;
+                if (seen[n] != search || newCost < costs[n]) {
+                    reach(n, newCost, current);
+                    buckets.add(n, newCost);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Jump point search on a 4 connected grid where every square costs the
+     * same. From a square reached moving horizontally, the search goes on
+     * horizontally and tries both vertical directions. From a square reached
+     * moving vertically, it goes on vertically and tries both horizontal
+     * directions. Each direction is followed (see jumpHorizontally,
+     * jumpVertically) until the target or a square where a shorter path could
+     * turn (a "forced" neighbour), and only those squares are queued.
+     */
+    private int[] findPathJumpPoint(int from, int to) {
+        startSearch();
+        if (closed == null) closed = new int[seen.length];
+        expanded = 0;
+        int width = grid.getWidth();
+        jumpWidth = width;
+        jumpHeight = grid.getSize() / width;
+        int toX = to % width;
+        int toY = to / width;
+        int cost = grid.getMinTravelCost();
+
+        reach(from, 0, -1);
+        heap.add(from, aStarKey(0, from, width, toX, toY, cost, to, null));
+
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            if (closed[current] == search) continue; // queued again with a lower cost
+            if (current == to) return tracebackJumps(to, width);
+            closed[current] = search;
+            if (expanded == expansionLimit) {
+                aborted = true;
+                return null;
+            }
+            expanded++;
+
+            int x = current % width;
+            int y = current / width;
+            int parent = predecessors[current];
+            // direction we came from, none for the start
+            int dx = parent == -1 ? 0 : Integer.signum(x - parent % width);
+            int dy = parent == -1 ? 0 : Integer.signum(y - parent / width);
+
+            for (int direction = 0; direction < 4; direction++) {
+                int stepX = DIRECTIONS_X[direction];
+                int stepY = DIRECTIONS_Y[direction];
+                // never straight back, and only the natural directions
+                if (parent != -1 && (stepX == -dx && stepY == -dy)) continue;
+                if (dx != 0 && stepX == -dx) continue;
+                if (dy != 0 && stepY == -dy) continue;
+
+                int jump = stepX != 0 ? jumpHorizontally(x + stepX, y, stepX, to, width)
+                        : jumpVertically(x, y + stepY, stepY, to, width);
+                if (jump == -1 || closed[jump] == search) continue;
+
+                int distance = Math.abs(jump % width - x) + Math.abs(jump / width - y);
+                int newCost = costs[current] + distance * cost;
+                if (seen[jump] != search || newCost < costs[jump]) {
+                    reach(jump, newCost, current);
+                    heap.add(jump, aStarKey(newCost, jump, width, toX, toY, cost, to, null));
+                }
+            }
+        }
+        return null;
+    }
+
+    // UP, DOWN, LEFT, RIGHT
+    private static final int[] DIRECTIONS_X = { 0, 0, -1, 1 };
+    private static final int[] DIRECTIONS_Y = { -1, 1, 0, 0 };
+
+    /**
+     * @return whether (x, y) is on the grid and not blocking, with the size of
+     *         the grid taken once per search (see findPathJumpPoint)
+     */
+    private boolean isOpen(int x, int y) {
+        return x >= 0 && x < jumpWidth && y >= 0 && y < jumpHeight && !grid.isBlocking(y * jumpWidth + x);
+    }
+
+    /**
+     * @return the first jump point from (x, y) going horizontally (dx), -1 if
+     *         a wall or the edge of the grid comes first
+     */
+    private int jumpHorizontally(int x, int y, int dx, int to, int width) {
+        while (isOpen(x, y)) {
+            int index = y * width + x;
+            if (index == to) return index;
+            // a vertical path could turn here
+            if ((isOpen(x, y - 1) && !isOpen(x - dx, y - 1))
+                    || (isOpen(x, y + 1) && !isOpen(x - dx, y + 1))) {
+                return index;
+            }
+            x += dx;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first jump point from (x, y) going vertically (dy), -1 if a
+     *         wall or the edge of the grid comes first. Squares from which a
+     *         horizontal jump finds something are jump points too.
+     */
+    private int jumpVertically(int x, int y, int dy, int to, int width) {
+        while (isOpen(x, y)) {
+            int index = y * width + x;
+            if (index == to) return index;
+            if ((isOpen(x - 1, y) && !isOpen(x - 1, y - dy))
+                    || (isOpen(x + 1, y) && !isOpen(x + 1, y - dy))) {
+                return index;
+            }
+            if (jumpHorizontally(x - 1, y, -1, to, width) != -1 || jumpHorizontally(x + 1, y, 1, to, width) != -1) {
+                return index;
+            }
+            y += dy;
+        }
+        return -1;
+    }
+
+    /**
+     * Like traceback, filling in the straight lines between the jump points
+     */
+    private int[] tracebackJumps(int to, int width) {
+        int length = 1;
+        for (int i = to; predecessors[i] != -1; i = predecessors[i]) {
+            int p = predecessors[i];
+            length += Math.abs(i % width - p % width) + Math.abs(i / width - p / width);
+        }
+        int[] path = new int[length];
+        int k = length;
+        for (int i = to; i != -1; i = predecessors[i]) {
+            path[--k] = i;
+            int p = predecessors[i];
+            if (p == -1) break;
+            int step = p % width == i % width ? (p < i ? width : -width) : (p < i ? 1 : -1);
+            for (int j = i - step; j != p; j -= step) {
+                path[--k] = j;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return the estimated cost of the whole path in the high bits, the
+     *         estimated remaining cost (the manhattan distance times the
+     *         minimum cost, or the bound of the landmarks if it is higher) in
+     *         the low bits
+     */
+    private static long aStarKey(int cost, int index, int width, int toX, int toY, int minCost, int to,
+            Landmarks bounds) {
+        long remaining = (long) minCost * (Math.abs(index % width - toX) + Math.abs(index / width - toY));
+        if (bounds != null) remaining = Math.max(remaining, bounds.lowerBound(index, to));
+        return ((cost + remaining) << 32) | remaining;
+    }
+
+    /**
+     * @param limit the number of squares a search can expand before it gives
+     *              up (see isAborted), Integer.MAX_VALUE for no limit
+     */
+    public void setExpansionLimit(int limit) {
+        this.expansionLimit = limit;
+    }
+
+    /**
+     * @return true if the last search gave up because it reached the
+     *         expansion limit
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * @return the number of squares whose neighbours were looked at by the
+     *         last search
+     */
+    public int getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * Sets portal to the square walked onto if it is a portal (other than the
+     * target), -1 otherwise
+     *
+     * @param index square walked onto, not blocking
+     * @param to    target of the search
+     * @return the square whoever walks onto index ends on, -1 if that one is
+     *         blocking
+     */
+    private int landing(int index, int to) {
+        portal = -1;
+        if (!teleports || index == to) return index;
+        int exit = grid.getTeleport(index);
+        if (exit == -1) return index;
+        if (grid.isBlocking(exit)) return -1;
+        portal = index;
+        return exit;
+    }
+
+    private void startSearch() {
+        heap.clear();
+        teleports = grid.hasTeleports();
+        if (teleports && entered == null) entered = new int[seen.length];
+        portal = -1;
+        if (++search == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            if (closed != null) Arrays.fill(closed, 0);
+            search = 1;
+        }
+    }
+
+    private void reach(int index, int cost, int predecessor) {
+        seen[index] = search;
+        costs[index] = cost;
+        predecessors[index] = predecessor;
+        if (entered != null) entered[index] = portal;
+    }
+
+    private int[] traceback(int to) {
+        int length = 0;
+        for (int i = to; i != -1; i = predecessors[i]) {
+            length++;
+            if (teleports && entered[i] != -1) length++;
+        }
+        int[] path = new int[length];
+        for (int i = to; i != -1; i = predecessors[i]) {
+            path[--length] = i;
+            if (teleports && entered[i] != -1) path[--length] = entered[i];
+        }
+        return path;
+    }
+}
@@ -0,0 +1,88 @@
+package dungeonmania;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.json.JSONObject;
+
+import dungeonmania.DungeonManiaController.GameMode;
+import dungeonmania.util.FileLoader;
+import dungeonmania.util.PathFinder;
+import dungeonmania.util.PathFinder.Algorithm;
+
+/**
+ * Not a test: compares the path finding algorithms on the maze dungeons
+ * (squares looked at and time per query, the best of ROUNDS runs of the
+ * queries so that the JIT and the other processes weigh less). Run its main
+ * method, with the number of landmarks ALT uses as argument (8 by default).
+ */
+public class PathFindingBenchmark {
+
+    private static final int QUERIES = 2000;
+    private static final int ROUNDS = 7;
+
+    public static void main(String[] args) throws IOException {
+        int landmarks = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        List<String> names = new ArrayList<>();
+        List<DungeonMap> maps = new ArrayList<>();
+        for (String name : FileLoader.listFileNamesInResourceDirectory("/dungeons")) {
+            if (!name.contains("maze")) continue;
+            String content = FileLoader.loadResourceFile("/dungeons/" + name + ".json");
+            names.add(name);
+            maps.add(Dungeon.fromJSONObject(new Random(1), name, GameMode.STANDARD, new JSONObject(content)).getMap());
+        }
+        names.add("generated");
+        maps.add(Dungeon.generateDungeon(new Random(1), new Pos2d(1, 1), new Pos2d(47, 47), GameMode.STANDARD)
+                .getMap());
+        names.add("generated large");
+        maps.add(Dungeon.generateDungeon(new Random(1), new Pos2d(1, 1), new Pos2d(199, 199), GameMode.STANDARD,
+                new Pos2d(201, 201)).getMap());
+
+        System.out.printf("%-24s %-10s %12s %12s%n", "dungeon", "algorithm", "expanded", "us/query");
+        for (int i = 0; i < maps.size(); i++) {
+            maps.get(i).setLandmarkCount(landmarks);
+            int[][] queries = queries(maps.get(i), new Random(i));
+            for (Algorithm algorithm : Algorithm.values()) {
+                run(names.get(i), maps.get(i), queries, algorithm);
+            }
+        }
+    }
+
+    /**
+     * @return pairs of cells that aren't blocking
+     */
+    private static int[][] queries(DungeonMap map, Random random) {
+        List<Integer> open = new ArrayList<>();
+        for (int i = 0; i < map.getSize(); i++) {
+            if (!map.isBlocking(i)) open.add(i);
+        }
+        int[][] queries = new int[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = new int[] { open.get(random.nextInt(open.size())), open.get(random.nextInt(open.size())) };
+        }
+        return queries;
+    }
+
+    private static void run(String name, DungeonMap map, int[][] queries, Algorithm algorithm) {
+        PathFinder finder = map.getPathFinder();
+        finder.setAlgorithm(algorithm);
+        // warm up
+        for (int[] query : queries) finder.findPath(query[0], query[1]);
+
+        long expanded = 0;
+        for (int[] query : queries) {
+            finder.findPath(query[0], query[1]);
+            expanded += finder.getExpanded();
+        }
+        long elapsed = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int[] query : queries) finder.findPath(query[0], query[1]);
+            elapsed = Math.min(elapsed, System.nanoTime() - start);
+        }
+        System.out.printf("%-24s %-10s %12.1f %12.2f%n", name, algorithm, (double) expanded / queries.length,
+                elapsed / 1000.0 / queries.length);
+    }
+}
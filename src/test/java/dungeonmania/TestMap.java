@@ -4,12 +4,28 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
 import dungeonmania.DungeonManiaController.GameMode;
+import dungeonmania.entities.Fighter;
+import dungeonmania.entities.collectables.Key;
+import dungeonmania.entities.collectables.Treasure;
+import dungeonmania.entities.movings.Assassin;
+import dungeonmania.entities.movings.Mercenary;
+import dungeonmania.entities.movings.Player;
+import dungeonmania.entities.statics.Boulder;
+import dungeonmania.entities.statics.Door;
+import dungeonmania.entities.statics.Swamp;
+import dungeonmania.entities.statics.Wall;
+import dungeonmania.util.BlockingReason;
+import dungeonmania.util.Direction;
 import dungeonmania.util.FileLoader;
 
 public class TestMap {
@@ -38,4 +54,292 @@ public class TestMap {
         assertEquals(3, dungeon.getMap().getCell(3, 0).getPlayerDistance());
         assertEquals(4, dungeon.getMap().getCell(4, 0).getPlayerDistance());
     }
+
+    @Test
+    public void testRegistryFollowsOccupants() {
+        Dungeon dungeon = TestUtils.emptyDungeon(5, 5);
+        DungeonMap map = dungeon.getMap();
+
+        Treasure treasure = new Treasure(dungeon, new Pos2d(1, 1));
+        map.getCell(1, 1).addOccupant(treasure);
+        Door door = new Door(dungeon, new Pos2d(2, 2), 1);
+        map.getCell(2, 2).addOccupant(door);
+        Assassin assassin = new Assassin(dungeon, new Pos2d(3, 3));
+        map.getCell(3, 3).addOccupant(assassin);
+
+        assertEquals(1, map.countTreasure());
+        assertEquals(1, map.countEntities(Mercenary.class));
+        assertEquals(1, map.countEntities(Fighter.class));
+        assertEquals(1, map.getEntities(Door.STRING_TYPE).size());
+
+        // moving doesn't change the counts
+        assassin.moveTo(map.getCell(3, 4));
+        assertEquals(1, map.countEntities(Assassin.class));
+        assertEquals(1, map.countEnemies());
+
+        map.removeEntity(treasure);
+        assertEquals(0, map.countTreasure());
+
+        // unlocking the door changes its type string
+        Player player = TestUtils.spawnPlayer(dungeon, 0, 0);
+        player.getInventory().add(new Key(dungeon, new Pos2d(0, 0), 1));
+        door.open();
+        assertEquals(0, map.getEntities(Door.STRING_TYPE).size());
+        assertEquals(1, map.getEntities("door_unlocked").size());
+    }
+
+    @Test
+    public void testFindEntityThroughPickup() throws IOException {
+        String content = FileLoader.loadResourceFile("/dungeons/_keyExample.json");
+        Dungeon dungeon = Dungeon.fromJSONObject(new Random(1), "name", GameMode.STANDARD, new JSONObject(content));
+        Entity key = dungeon.getMap().getEntities(Key.class).iterator().next();
+
+        assertEquals(key, dungeon.findEntity(key.getId()));
+        assertEquals(dungeon.getPlayer(), dungeon.findEntity(dungeon.getPlayer().getId()));
+
+        // the key is picked up, it isn't on the map anymore but still in the dungeon
+        dungeon.tick(null, Direction.DOWN);
+        dungeon.tick(null, Direction.DOWN);
+        assertEquals(null, dungeon.getMap().getEntity(key.getId()));
+        assertEquals(key, dungeon.findEntity(key.getId()));
+
+        assertEquals(null, dungeon.findEntity("not an id"));
+    }
+
+    @Test
+    public void testPlayerCellTracked() {
+        Dungeon dungeon = TestUtils.emptyDungeon(5, 5);
+        DungeonMap map = dungeon.getMap();
+        assertEquals(null, map.getPlayerCell());
+
+        Player player = TestUtils.spawnPlayer(dungeon, 0, 0);
+        assertEquals(map.getCell(0, 0), map.getPlayerCell());
+
+        player.handleMoveOrder(Direction.RIGHT);
+        assertEquals(map.getCell(1, 0), map.getPlayerCell());
+
+        map.removeEntity(player);
+        assertEquals(null, map.getPlayerCell());
+    }
+
+    @Test
+    public void testBlockingCacheInvalidation() {
+        Dungeon dungeon = TestUtils.emptyDungeon(5, 5);
+        DungeonMap map = dungeon.getMap();
+        Player player = TestUtils.spawnPlayer(dungeon, 0, 0);
+
+        Boulder boulder = new Boulder(dungeon, new Pos2d(1, 0));
+        map.getCell(1, 0).addOccupant(boulder);
+        Door door = new Door(dungeon, new Pos2d(0, 1), 1);
+        map.getCell(0, 1).addOccupant(door);
+        map.getCell(3, 3).addOccupant(new Swamp(dungeon, new Pos2d(3, 3), 4));
+
+        assertEquals(true, map.isBlocking(map.toIndex(1, 0)));
+        assertEquals(true, map.isBlocking(map.toIndex(0, 1)));
+        assertEquals(4, map.getTravelCost(map.toIndex(3, 3)));
+        assertEquals(1, map.getTravelCost(map.toIndex(2, 2)));
+
+        // the boulder rolls one cell to the right
+        player.handleMoveOrder(Direction.RIGHT);
+        assertEquals(false, map.isBlocking(map.toIndex(1, 0)));
+        assertEquals(true, map.isBlocking(map.toIndex(2, 0)));
+
+        // the door opens
+        player.getInventory().add(new Key(dungeon, new Pos2d(0, 0), 1));
+        door.open();
+        assertEquals(false, map.getCell(0, 1).isBlocking());
+    }
+
+    @Test
+    public void testOccupantKinds() {
+        Dungeon dungeon = TestUtils.emptyDungeon(3, 3);
+        DungeonMap map = dungeon.getMap();
+        Cell cell = map.getCell(1, 1);
+
+        Boulder first = new Boulder(dungeon, new Pos2d(1, 1));
+        Boulder second = new Boulder(dungeon, new Pos2d(1, 1));
+        cell.addOccupant(first);
+        cell.addOccupant(second);
+        cell.addOccupant(new Swamp(dungeon, new Pos2d(1, 1), 2));
+        assertEquals(true, cell.hasBoulder());
+        assertEquals(true, cell.has(OccupantKind.STATIC));
+        assertEquals(false, cell.has(OccupantKind.MOVING));
+        assertEquals(BlockingReason.BOULDER, cell.getBlocking());
+
+        // still a boulder left
+        cell.removeOccupant(first);
+        assertEquals(true, cell.hasBoulder());
+
+        cell.removeOccupant(second);
+        assertEquals(false, cell.hasBoulder());
+        assertEquals(true, cell.has(OccupantKind.SWAMP));
+        assertEquals(BlockingReason.NOT, cell.getBlocking());
+        assertEquals(null, map.getCell(0, 0).getSwamp());
+    }
+
+    @Test
+    public void testChunkedCells() {
+        Dungeon dungeon = TestUtils.emptyDungeon(2000, 1500);
+        DungeonMap map = dungeon.getMap();
+
+        // nothing is created until it's used
+        assertEquals(false, map.getCells().iterator().hasNext());
+
+        map.getCell(1999, 1499).addOccupant(new Boulder(dungeon, new Pos2d(1999, 1499)));
+        map.getCell(40, 3).addOccupant(new Boulder(dungeon, new Pos2d(40, 3)));
+        map.getCell(5, 3).addOccupant(new Boulder(dungeon, new Pos2d(5, 3)));
+
+        // across chunks, still row after row
+        List<Cell> cells = new ArrayList<>();
+        map.getCells().forEach(cells::add);
+        assertEquals(3, cells.size());
+        assertEquals(new Pos2d(5, 3), cells.get(0).getPosition());
+        assertEquals(new Pos2d(40, 3), cells.get(1).getPosition());
+        assertEquals(new Pos2d(1999, 1499), cells.get(2).getPosition());
+
+        // the same cell is returned every time
+        Cell corner = map.getCell(1999, 1499);
+        assertEquals(true, corner == map.getCellAround(map.getCell(1998, 1499), Direction.RIGHT));
+        assertEquals(null, map.getCellAround(corner, Direction.DOWN));
+        assertEquals(true, corner.isBlocking());
+        assertEquals(3, map.allEntities().size());
+    }
+
+    @Test
+    public void testInternedPositions() {
+        Dungeon dungeon = TestUtils.emptyDungeon(5, 5);
+        DungeonMap map = dungeon.getMap();
+
+        assertEquals(true, map.getPosition(2, 3) == map.getPosition(2, 3));
+        assertEquals(true, map.getPosition(2, 3) == map.getCell(2, 3).getPosition());
+        assertEquals(null, map.getPosition(5, 0));
+        assertEquals(Pos2d.key(2, 3), map.getPosition(2, 3).key());
+
+        // moving an entity doesn't move the cell it was on
+        Boulder boulder = new Boulder(dungeon, map.getPosition(1, 1));
+        map.getCell(1, 1).addOccupant(boulder);
+        boulder.setPosition(4, 4);
+        assertEquals(new Pos2d(1, 1), map.getCell(1, 1).getPosition());
+        assertEquals(true, map.getPosition(4, 4) == boulder.getPosition());
+    }
+
+    /**
+     * The original flood: sweeps the whole map once per distance level. A
+     * cell next to a portal is one step away from the portal's pair.
+     */
+    private static int[] sweepFlood(DungeonMap map) {
+        int unreached = map.getSize();
+        int[] distances = new int[map.getSize()];
+        Arrays.fill(distances, unreached);
+        if (map.getPlayerCell() == null) return distances;
+        int player = map.getPlayerCell().getIndex();
+        distances[player] = 0;
+
+        int[] neighbours = new int[4];
+        int explorationLevel = 0;
+        int valuesChanged = 1;
+        while (valuesChanged != 0) {
+            valuesChanged = 0;
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] != explorationLevel) continue;
+                // the cells stepping onto i or onto the portal paired with it
+                // end on i (portals are paired both ways)
+                int pair = map.getTeleport(i);
+                for (int j : new int[] { i, pair }) {
+                    if (j == -1) continue;
+                    boolean landsOnI = j == player || map.getTeleport(j) == -1 ? j == i
+                            : j == pair && !map.isBlocking(j) && !map.isBlocking(i);
+                    if (!landsOnI) continue;
+                    int count = map.getNeighbourIndices(j, neighbours);
+                    for (int k = 0; k < count; k++) {
+                        int n = neighbours[k];
+                        if (!map.isBlocking(n) && distances[n] == unreached) {
+                            valuesChanged++;
+                            distances[n] = explorationLevel + 1;
+                        }
+                    }
+                }
+            }
+            explorationLevel++;
+        }
+        return distances;
+    }
+
+    @Test
+    public void testFloodMatchesSweep() throws IOException {
+        for (Map.Entry<String, Dungeon> entry : TestUtils.loadBundledDungeons().entrySet()) {
+            String name = entry.getKey();
+            Dungeon dungeon = entry.getValue();
+            DungeonMap map = dungeon.getMap();
+
+            // a few ticks so that things move around
+            for (int tick = 0; tick < 4; tick++) {
+                map.flood();
+                int[] expected = sweepFlood(map);
+                for (int i = 0; i < map.getSize(); i++) {
+                    assertEquals(expected[i], map.getPlayerDistance(i), name + " at index " + i);
+                }
+                dungeon.tick(null, tick % 2 == 0 ? Direction.RIGHT : Direction.DOWN);
+            }
+        }
+    }
+
+    @Test
+    public void testTickedEntities() throws IOException {
+        for (Map.Entry<String, Dungeon> entry : TestUtils.loadBundledDungeons().entrySet()) {
+            String name = entry.getKey();
+            Dungeon dungeon = entry.getValue();
+            DungeonMap map = dungeon.getMap();
+
+            // the same entities, in the same order, as going through all of them
+            for (int tick = 0; tick < 4; tick++) {
+                List<Entity> expected = new ArrayList<>();
+                for (Entity e : map.allEntities()) {
+                    if (e.isTicked()) expected.add(e);
+                }
+                assertEquals(expected, map.getTickedEntities(), name);
+                dungeon.tick(null, tick % 2 == 0 ? Direction.RIGHT : Direction.DOWN);
+            }
+            assertEquals(false, map.getTickedEntities().contains(dungeon.getPlayer()));
+        }
+    }
+
+    @Test
+    public void testIncrementalFlood() {
+        Random random = new Random(4);
+        Dungeon dungeon = TestUtils.emptyDungeon(random, 23, 17);
+        DungeonMap map = dungeon.getMap();
+        Player player = TestUtils.spawnPlayer(dungeon, 11, 8);
+
+        List<Wall> walls = new ArrayList<>();
+        for (int round = 0; round < 300; round++) {
+            // a few walls appear or disappear, the player stays put most of the time
+            for (int change = random.nextInt(4); change >= 0; change--) {
+                if (walls.size() > 0 && random.nextInt(3) == 0) {
+                    map.removeEntity(walls.remove(random.nextInt(walls.size())));
+                } else {
+                    Cell cell = map.getCellByIndex(random.nextInt(map.getSize()));
+                    if (cell.hasPlayer()) continue;
+                    Wall wall = new Wall(dungeon, cell.getPosition());
+                    cell.addOccupant(wall);
+                    walls.add(wall);
+                }
+            }
+            if (round % 10 == 0) {
+                Direction d = Direction.values()[random.nextInt(4)];
+                Cell next = map.getCellAround(map.getPlayerCell(), d);
+                if (next != null && !next.isBlocking()) {
+                    map.getPlayerCell().removeOccupant(player);
+                    player.setPosition(next.getPosition().getX(), next.getPosition().getY());
+                    next.addOccupant(player);
+                }
+            }
+
+            map.flood();
+            int[] expected = sweepFlood(map);
+            for (int i = 0; i < map.getSize(); i++) {
+                assertEquals(expected[i], map.getPlayerDistance(i), "round " + round + " at index " + i);
+            }
+        }
+    }
 }
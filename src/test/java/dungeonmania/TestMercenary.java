@@ -6,8 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -22,11 +24,13 @@ import dungeonmania.entities.collectables.buildables.Sceptre;
 import dungeonmania.entities.movings.Assassin;
 import dungeonmania.entities.movings.Mercenary;
 import dungeonmania.entities.movings.Player;
+import dungeonmania.entities.statics.Wall;
 import dungeonmania.exceptions.InvalidActionException;
 import dungeonmania.response.models.DungeonResponse;
 import dungeonmania.response.models.EntityResponse;
 import dungeonmania.util.Direction;
 import dungeonmania.util.FileLoader;
+import dungeonmania.util.PathFinder.Algorithm;
 
 public class TestMercenary {
     DungeonManiaController dc;
@@ -324,4 +328,227 @@ public class TestMercenary {
             assertEquals(0, TestUtils.countEntitiesOfType(resp, Mercenary.STRING_TYPE), "i=" + i);
         }
     }
+
+    @Test
+    public void testCachedPath() {
+        Dungeon dungeon = TestUtils.emptyDungeon(9, 5);
+        DungeonMap map = dungeon.getMap();
+        Player player = TestUtils.spawnPlayer(dungeon, 8, 2);
+
+        CachedPath cache = new CachedPath();
+        Cell cell = map.getCell(0, 2);
+        Cell next = map.stepTowardsPlayer(cell, cache);
+        assertEquals(0, map.getPathCacheHits());
+        assertEquals(1, map.getPathCacheMisses());
+
+        // following the path doesn't search again
+        for (int step = 0; step < 3; step++) {
+            cell = next;
+            next = map.stepTowardsPlayer(cell, cache);
+            assertEquals(map.stepTowardsPlayer(cell), next);
+        }
+        assertEquals(3, map.getPathCacheHits());
+
+        // the player steps back onto the path: still no search
+        map.getCell(8, 2).removeOccupant(player);
+        player.setPosition(7, 2);
+        map.getCell(7, 2).addOccupant(player);
+        assertEquals(next, map.stepTowardsPlayer(cell, cache));
+        assertEquals(4, map.getPathCacheHits());
+
+        // a wall changes the version, the next step searches
+        int version = map.getBlockingVersion();
+        next.addOccupant(new Wall(dungeon, next.getPosition()));
+        assertEquals(true, version != map.getBlockingVersion());
+        next = map.stepTowardsPlayer(cell, cache);
+        assertEquals(2, map.getPathCacheMisses());
+        assertEquals(map.stepTowardsPlayer(cell), next);
+    }
+
+    @Test
+    public void testSearchBudget() {
+        Dungeon dungeon = Dungeon.generateDungeon(new Random(21), new Pos2d(1, 1), new Pos2d(47, 47), GameMode.STANDARD);
+        DungeonMap map = dungeon.getMap();
+        map.flood();
+        Cell far = map.getCell(47, 47);
+        Cell near = map.getCellAround(map.getPlayerCell(), Direction.RIGHT);
+        if (near.isBlocking()) near = map.getCellAround(map.getPlayerCell(), Direction.DOWN);
+
+        // the far search needs more than the budget: a greedy step instead
+        map.setSearchBudget(50);
+        map.startTick();
+        CachedPath farPath = new CachedPath();
+        Cell greedy = map.stepTowardsPlayer(far, farPath);
+        assertEquals(1, map.getDeferredSearches());
+        assertEquals(true, greedy == far || map.getCellsAround(far).anyMatch(cell -> cell == greedy));
+        // the budget is spent, but the field already got as far as near
+        assertEquals(map.getPlayerCell(), map.stepTowardsPlayer(near, new CachedPath()));
+        assertEquals(1, map.getDeferredSearches());
+
+        // each tick, the search picks up where it stopped with a fresh budget,
+        // until it gets to far
+        CostField field = new CostField(map);
+        field.update(map.getPlayerCell().getIndex());
+        int ticks = 1;
+        Cell step;
+        do {
+            map.startTick();
+            step = map.stepTowardsPlayer(far, farPath);
+            ticks++;
+        } while (map.getDeferredSearches() == ticks && ticks < map.getSize());
+        assertEquals(true, ticks > 2);
+        assertEquals(ticks - 1, map.getDeferredSearches());
+        assertEquals(map.getCellByIndex(field.nextStep(far.getIndex())), step);
+    }
+
+    @Test
+    public void testHierarchicalSearchBudget() {
+        Dungeon dungeon = Dungeon.generateDungeon(new Random(8), new Pos2d(1, 1), new Pos2d(128, 128),
+                GameMode.PEACEFUL, new Pos2d(131, 131));
+        DungeonMap map = dungeon.getMap();
+        map.setSearchParallelism(1);
+        List<Cell> from = List.of(map.getCell(128, 128), map.getCell(1, 128), map.getCell(128, 1));
+        map.getHierarchicalPathFinder().prepare();
+
+        // room for about one search per tick: the followers take turns
+        map.setSearchBudget(600);
+        Set<Cell> searched = new HashSet<>();
+        for (int tick = 0; tick < from.size(); tick++) {
+            map.startTick();
+            map.planSteps(from);
+            for (Cell cell : from) {
+                long planned = map.getPlannedSteps();
+                Cell step = map.stepTowardsPlayer(cell);
+                if (map.getPlannedSteps() == planned) continue;
+                searched.add(cell);
+                assertEquals(map.getHierarchicalPathFinder().nextStep(cell.getIndex(), map.getPlayerCell().getIndex()),
+                        step.getIndex());
+            }
+        }
+        assertEquals(from.size(), searched.size());
+        assertEquals(true, map.getDeferredSearches() > 0);
+    }
+
+    /**
+     * @return where the mercenaries are after each tick of a seeded game,
+     *         with the searches planned on that many threads
+     */
+    private List<String> playWithParallelism(int parallelism, int size) {
+        Dungeon dungeon = Dungeon.generateDungeon(new Random(8), new Pos2d(1, 1), new Pos2d(size - 3, size - 3),
+                GameMode.PEACEFUL, new Pos2d(size, size));
+        DungeonMap map = dungeon.getMap();
+        map.setSearchParallelism(parallelism);
+        int far = size - 3;
+        for (Cell cell : List.of(map.getCell(far, far), map.getCell(1, far), map.getCell(far, 1))) {
+            cell.addOccupant(new Mercenary(dungeon, cell.getPosition()));
+        }
+
+        Random moves = new Random(3);
+        List<String> positions = new ArrayList<>();
+        for (int tick = 0; tick < 40; tick++) {
+            dungeon.tick(null, Direction.values()[moves.nextInt(4)]);
+            for (Mercenary mercenary : map.getEntities(Mercenary.class)) {
+                positions.add(tick + " " + mercenary.getPosition());
+            }
+        }
+        if (parallelism > 0) assertEquals(true, map.getPlannedSteps() > 0);
+        else assertEquals(0, map.getPlannedSteps());
+        return positions;
+    }
+
+    @Test
+    public void testPlannedSearches() {
+        // only the hierarchical searches of big maps are planned
+        int size = 131;
+        assertEquals(true, size * size >= DungeonMap.HIERARCHICAL_MIN_SIZE);
+        List<String> unplanned = playWithParallelism(0, size);
+        assertEquals(unplanned, playWithParallelism(1, size));
+        assertEquals(unplanned, playWithParallelism(4, size));
+        // and again, whatever order the searches finish in
+        assertEquals(unplanned, playWithParallelism(4, size));
+    }
+
+    /**
+     * @return the steps of the followers after the plan of that many threads
+     */
+    private List<Cell> plannedSteps(DungeonMap map, List<Cell> from, int parallelism) {
+        map.setSearchParallelism(parallelism);
+        map.startTick();
+        map.planSteps(from);
+        long planned = map.getPlannedSteps();
+        List<Cell> steps = new ArrayList<>();
+        for (Cell cell : from) {
+            steps.add(map.stepTowardsPlayer(cell));
+        }
+        assertEquals(parallelism == 0 ? planned : planned + from.size(), map.getPlannedSteps());
+        return steps;
+    }
+
+    @Test
+    public void testParallelPlan() {
+        int size = 131;
+        Dungeon dungeon = Dungeon.generateDungeon(new Random(8), new Pos2d(1, 1), new Pos2d(size - 3, size - 3),
+                GameMode.PEACEFUL, new Pos2d(size, size));
+        DungeonMap map = dungeon.getMap();
+        assertEquals(true, map.getSize() >= DungeonMap.HIERARCHICAL_MIN_SIZE);
+        // planning is opt-in
+        assertEquals(0, map.getSearchParallelism());
+        List<Cell> from = new ArrayList<>();
+        Random random = new Random(5);
+        while (from.size() < 8) {
+            Cell cell = map.getCellByIndex(random.nextInt(map.getSize()));
+            if (!cell.isBlocking() && !from.contains(cell)) from.add(cell);
+        }
+
+        // the same steps as the plan on the calling thread, and as no plan
+        List<Cell> sequential = plannedSteps(map, from, 1);
+        assertEquals(sequential, plannedSteps(map, from, 4));
+        assertEquals(sequential, plannedSteps(map, from, 0));
+        map.setSearchParallelism(0);
+    }
+
+    @Test
+    public void testSharedCostField() throws IOException {
+        for (Map.Entry<String, Dungeon> entry : TestUtils.loadBundledDungeons().entrySet()) {
+            String name = entry.getKey();
+            Dungeon dungeon = entry.getValue();
+            DungeonMap map = dungeon.getMap();
+            Cell playerCell = map.getPlayerCell();
+            if (playerCell == null) continue;
+
+            CostField field = new CostField(map);
+            field.update(playerCell.getIndex());
+            map.getPathFinder().setAlgorithm(Algorithm.DIJKSTRA);
+            // findPath is too slow to be run from every cell of the big dungeons
+            Random random = new Random(13);
+            for (int sample = 0; sample < 100; sample++) {
+                int i = random.nextInt(map.getSize());
+                Cell cell = map.getCellByIndex(i);
+                List<Cell> path = map.findPath(cell, playerCell);
+                if (path == null) {
+                    assertEquals(CostField.UNREACHABLE, field.get(i), name + " at index " + i);
+                    assertEquals(-1, field.nextStep(i), name + " at index " + i);
+                    continue;
+                }
+                int cost = TestUtils.pathCost(map, path);
+                assertEquals(cost, field.get(i), name + " at index " + i);
+                // the followers step the way findPath first did
+                if (map.getSize() < DungeonMap.HIERARCHICAL_MIN_SIZE) {
+                    assertEquals(path.size() == 1 ? cell : path.get(1), map.stepTowardsPlayer(cell),
+                            name + " at index " + i);
+                }
+
+                // the step is on a cheapest path, even if it isn't the one findPath picked
+                int next = field.nextStep(i);
+                if (cost == 0) {
+                    assertEquals(i, next, name + " at index " + i);
+                } else {
+                    // stepping onto a portal ends on its pair
+                    Cell landing = map.getLandingCell(map.getCellByIndex(next));
+                    assertEquals(cost, map.getTravelCost(next) + field.get(landing.getIndex()), name + " at index " + i);
+                    assertEquals(cost - map.getTravelCost(next), TestUtils.pathCost(map, map.findPath(landing, playerCell)));
+                }
+            }
+        }
+    }
 }
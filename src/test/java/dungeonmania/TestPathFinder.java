@@ -0,0 +1,373 @@
+package dungeonmania;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dungeonmania.DungeonManiaController.GameMode;
+import dungeonmania.entities.statics.Portal;
+import dungeonmania.entities.statics.Swamp;
+import dungeonmania.entities.statics.Wall;
+import dungeonmania.util.Direction;
+import dungeonmania.util.HierarchicalPathFinder;
+import dungeonmania.util.PathFinder;
+import dungeonmania.util.PathFinder.Algorithm;
+
+public class TestPathFinder {
+    @Test
+    public void testFindPathAroundSwamp() {
+        Dungeon dungeon = TestUtils.emptyDungeon(5, 3);
+        DungeonMap map = dungeon.getMap();
+        TestUtils.spawnWall(dungeon, 2, 0);
+        map.getCell(2, 1).addOccupant(new Swamp(dungeon, map.getPosition(2, 1), 5));
+
+        // around the swamp, through the bottom row
+        List<Cell> first = map.findPath(map.getCell(0, 1), map.getCell(4, 1));
+        assertEquals(7, first.size());
+        assertEquals(6, TestUtils.pathCost(map, first));
+        assertEquals(true, first.contains(map.getCell(2, 2)));
+        // the path finder is reused between searches
+        for (int i = 0; i < 3; i++) {
+            assertEquals(first, map.findPath(map.getCell(0, 1), map.getCell(4, 1)));
+        }
+        assertEquals(1, map.findPath(map.getCell(3, 0), map.getCell(3, 0)).size());
+
+        // walled off
+        TestUtils.spawnWall(dungeon, 2, 1);
+        TestUtils.spawnWall(dungeon, 2, 2);
+        assertEquals(null, map.findPath(map.getCell(0, 1), map.getCell(4, 1)));
+    }
+
+    @Test
+    public void testPathAlgorithms() {
+        Random random = new Random(15);
+        for (int round = 0; round < 40; round++) {
+            Dungeon dungeon = TestUtils.emptyDungeon(random, 5 + random.nextInt(20), 5 + random.nextInt(20));
+            DungeonMap map = dungeon.getMap();
+            for (int i = 0; i < map.getSize(); i++) {
+                Cell cell = map.getCellByIndex(i);
+                int kind = random.nextInt(10);
+                if (kind < 2) cell.addOccupant(new Wall(dungeon, cell.getPosition()));
+                // including swamps that are free to walk onto, every other map
+                // has none (which is when jump points are used)
+                if (kind == 2 && round % 2 == 0) cell.addOccupant(new Swamp(dungeon, cell.getPosition(), random.nextInt(4)));
+            }
+            map.setLandmarkCount(1 + round % 4);
+
+            for (int query = 0; query < 50; query++) {
+                Cell from = map.getCellByIndex(random.nextInt(map.getSize()));
+                Cell to = map.getCellByIndex(random.nextInt(map.getSize()));
+                map.getPathFinder().setAlgorithm(Algorithm.DIJKSTRA);
+                List<Cell> expected = map.findPath(from, to);
+                for (Algorithm algorithm : Arrays.asList(Algorithm.A_STAR, Algorithm.DIAL, Algorithm.JUMP_POINT,
+                        Algorithm.ALT, Algorithm.AUTO)) {
+                    map.getPathFinder().setAlgorithm(algorithm);
+                    List<Cell> path = map.findPath(from, to);
+
+                    if (expected == null) {
+                        assertEquals(null, path, algorithm.toString());
+                    } else {
+                        assertEquals(TestUtils.pathCost(map, expected), TestUtils.pathCost(map, path), algorithm.toString());
+                        assertEquals(from, path.get(0));
+                        assertEquals(to, path.get(path.size() - 1));
+                        for (int i = 1; i < path.size(); i++) {
+                            assertEquals(false, path.get(i).isBlocking());
+                            assertEquals(1, path.get(i).getPosition().squareDistance(path.get(i - 1).getPosition()));
+                        }
+                        // same answer every time
+                        assertEquals(path, map.findPath(from, to));
+                    }
+                }
+            }
+        }
+
+        // across an open room, only the squares along the way are looked at
+        DungeonMap room = new DungeonMap(40, 40);
+        PathFinder finder = room.getPathFinder();
+        finder.setAlgorithm(Algorithm.A_STAR);
+        assertEquals(11, finder.findPath(room.toIndex(5, 5), room.toIndex(15, 5)).length);
+        assertEquals(10, finder.getExpanded());
+        // jump points go straight there
+        finder.setAlgorithm(Algorithm.JUMP_POINT);
+        int[] path = finder.findPath(room.toIndex(5, 5), room.toIndex(15, 25));
+        assertEquals(31, path.length);
+        assertEquals(true, finder.getExpanded() <= 2);
+        for (int i = 1; i < path.length; i++) {
+            assertEquals(1, Math.abs(path[i] % 40 - path[i - 1] % 40) + Math.abs(path[i] / 40 - path[i - 1] / 40));
+        }
+
+        // AUTO picks jump points while every square costs the same
+        finder.setAlgorithm(Algorithm.AUTO);
+        assertEquals(31, finder.findPath(room.toIndex(5, 5), room.toIndex(15, 25)).length);
+        assertEquals(true, finder.getExpanded() <= 2);
+        Dungeon dungeon = TestUtils.emptyDungeon(40, 40);
+        finder = dungeon.getMap().getPathFinder();
+        // the default breaks ties the way findPath always did
+        assertEquals(Algorithm.DIJKSTRA, finder.getAlgorithm());
+        finder.setAlgorithm(Algorithm.AUTO);
+        dungeon.getMap().getCell(30, 30).addOccupant(new Swamp(dungeon, new Pos2d(30, 30), 2));
+        assertEquals(31, finder.findPath(room.toIndex(5, 5), room.toIndex(15, 25)).length);
+        assertEquals(true, finder.getExpanded() > 2);
+    }
+
+    @Test
+    public void testLandmarks() {
+        Dungeon dungeon = Dungeon.generateDungeon(new Random(5), new Pos2d(1, 1), new Pos2d(47, 47), GameMode.STANDARD);
+        DungeonMap map = dungeon.getMap();
+        map.setLandmarkCount(6);
+        PathFinder finder = map.getPathFinder();
+        assertEquals(6, finder.getLandmarks().getLandmarks().length);
+
+        Random random = new Random(2);
+        long aStarExpanded = 0;
+        long altExpanded = 0;
+        for (int query = 0; query < 100; query++) {
+            int from = random.nextInt(map.getSize());
+            int to = random.nextInt(map.getSize());
+            if (map.isBlocking(from) || map.isBlocking(to)) continue;
+            finder.setAlgorithm(Algorithm.A_STAR);
+            int[] expected = finder.findPath(from, to);
+            aStarExpanded += finder.getExpanded();
+            finder.setAlgorithm(Algorithm.ALT);
+            int[] path = finder.findPath(from, to);
+            altExpanded += finder.getExpanded();
+
+            assertEquals(expected.length, path.length);
+            assertEquals(true, finder.getLandmarks().lowerBound(from, to) <= path.length - 1);
+        }
+        // the bounds follow the corridors of the maze
+        assertEquals(true, altExpanded * 2 < aStarExpanded, altExpanded + " vs " + aStarExpanded);
+
+        // the bounds can't be used once the maze changes, until they are
+        // computed again, which can be done a bit at a time
+        Cell cell = map.getCellAround(map.getPlayerCell(), Direction.RIGHT);
+        if (cell.isBlocking()) cell = map.getCellAround(map.getPlayerCell(), Direction.DOWN);
+        cell.addOccupant(new Swamp(dungeon, cell.getPosition(), 30));
+        Cell exit = map.getCell(47, 47);
+        finder.setAlgorithm(Algorithm.DIJKSTRA);
+        int cost = TestUtils.pathCost(map, map.findPath(map.getPlayerCell(), exit));
+        finder.setAlgorithm(Algorithm.ALT);
+        assertEquals(cost, TestUtils.pathCost(map, map.findPath(map.getPlayerCell(), exit)));
+        assertEquals(false, finder.getLandmarks().isValid());
+
+        int limit = 4 * map.getSize();
+        int updates = 0;
+        while (!finder.getLandmarks().update(limit)) {
+            assertEquals(true, finder.getLandmarks().getExpanded() <= limit);
+            assertEquals(false, finder.getLandmarks().isValid());
+            updates++;
+        }
+        assertEquals(true, updates > 0);
+        assertEquals(cost, TestUtils.pathCost(map, map.findPath(map.getPlayerCell(), exit)));
+        assertEquals(true, finder.getLandmarks().lowerBound(map.getPlayerCell().getIndex(), exit.getIndex()) <= cost);
+    }
+
+    @Test
+    public void testConnectedComponents() {
+        Dungeon dungeon = TestUtils.emptyDungeon(7, 3);
+        DungeonMap map = dungeon.getMap();
+        ConnectedComponents components = map.getComponents();
+        Cell left = map.getCell(0, 1);
+        Cell right = map.getCell(6, 1);
+        assertEquals(components.getComponent(left.getIndex()), components.getComponent(right.getIndex()));
+
+        // a column of walls cuts the map in two
+        List<Wall> walls = new ArrayList<>();
+        for (int y = 0; y < 3; y++) {
+            walls.add(TestUtils.spawnWall(dungeon, 3, y));
+        }
+        assertEquals(false, components.canReach(left.getIndex(), right.getIndex()));
+        assertEquals(null, map.findPath(left, right));
+        assertEquals(-1, components.getComponent(map.toIndex(3, 1)));
+        // a path can start from a blocking cell
+        assertEquals(true, components.canReach(map.toIndex(3, 1), right.getIndex()));
+        assertEquals(2, map.findPath(map.getCell(3, 1), map.getCell(4, 1)).size());
+
+        // and it's open again
+        map.removeEntity(walls.get(2));
+        assertEquals(true, components.canReach(left.getIndex(), right.getIndex()));
+        assertEquals(9, map.findPath(left, right).size());
+    }
+
+    @Test
+    public void testConnectedComponentsMatchFindPath() {
+        Random random = new Random(17);
+        Dungeon dungeon = TestUtils.emptyDungeon(random, 15, 11);
+        DungeonMap map = dungeon.getMap();
+        List<Wall> walls = new ArrayList<>();
+        for (int round = 0; round < 200; round++) {
+            for (int change = random.nextInt(4); change >= 0; change--) {
+                if (walls.size() > 0 && random.nextInt(3) == 0) {
+                    map.removeEntity(walls.remove(random.nextInt(walls.size())));
+                } else {
+                    Cell cell = map.getCellByIndex(random.nextInt(map.getSize()));
+                    Wall wall = new Wall(dungeon, cell.getPosition());
+                    cell.addOccupant(wall);
+                    walls.add(wall);
+                }
+            }
+
+            for (int query = 0; query < 10; query++) {
+                int from = random.nextInt(map.getSize());
+                int to = random.nextInt(map.getSize());
+                // a search that isn't cut short
+                boolean reachable = map.getPathFinder().findPath(from, to) != null;
+                assertEquals(reachable, map.getComponents().canReach(from, to), "round " + round);
+            }
+        }
+    }
+
+    @Test
+    public void testHierarchicalPathFinder() {
+        Random random = new Random(18);
+        Dungeon dungeon = TestUtils.emptyDungeon(random, 37, 29);
+        DungeonMap map = dungeon.getMap();
+        List<Wall> walls = new ArrayList<>();
+        for (int i = 0; i < map.getSize(); i++) {
+            Cell cell = map.getCellByIndex(i);
+            int kind = random.nextInt(10);
+            if (kind < 3) {
+                walls.add(new Wall(dungeon, cell.getPosition()));
+                cell.addOccupant(walls.get(walls.size() - 1));
+            }
+            if (kind == 3) cell.addOccupant(new Swamp(dungeon, cell.getPosition(), 1 + random.nextInt(3)));
+        }
+
+        HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(map, 8);
+        for (int round = 0; round < 20; round++) {
+            for (int query = 0; query < 30; query++) {
+                int from = random.nextInt(map.getSize());
+                int to = random.nextInt(map.getSize());
+                int[] path = map.getPathFinder().findPath(from, to);
+                int next = hierarchical.nextStep(from, to);
+                if (path == null) {
+                    assertEquals(-1, next);
+                    continue;
+                }
+                // a path is found as soon as there is one, maybe not the cheapest
+                assertEquals(true, next != -1, "round " + round + " from " + from + " to " + to);
+                assertEquals(true, hierarchical.getLastCost() >= TestUtils.pathCost(map, map.findPath(map.getCellByIndex(from),
+                        map.getCellByIndex(to))));
+                if (from == to) {
+                    assertEquals(from, next);
+                } else {
+                    assertEquals(false, map.isBlocking(next));
+                    assertEquals(1, Math.abs(next % 37 - from % 37) + Math.abs(next / 37 - from / 37));
+                }
+            }
+
+            // only the sectors that changed are rebuilt, the result is the same
+            // as building everything again
+            for (int change = 0; change < 5; change++) {
+                Cell cell;
+                if (random.nextBoolean()) {
+                    Wall wall = walls.remove(random.nextInt(walls.size()));
+                    cell = wall.getCell();
+                    map.removeEntity(wall);
+                } else {
+                    cell = map.getCellByIndex(random.nextInt(map.getSize()));
+                    walls.add(new Wall(dungeon, cell.getPosition()));
+                    cell.addOccupant(walls.get(walls.size() - 1));
+                }
+                // the map only reports changes to its own finder
+                hierarchical.cellChanged(cell.getIndex());
+            }
+            HierarchicalPathFinder rebuilt = new HierarchicalPathFinder(map, 8);
+            assertEquals(rebuilt.getNodeCount(), hierarchical.getNodeCount());
+            for (int query = 0; query < 30; query++) {
+                int from = random.nextInt(map.getSize());
+                int to = random.nextInt(map.getSize());
+                assertEquals(rebuilt.nextStep(from, to), hierarchical.nextStep(from, to), "round " + round);
+                assertEquals(rebuilt.getLastCost(), hierarchical.getLastCost(), "round " + round);
+            }
+        }
+    }
+
+    @Test
+    public void testHierarchicalPortals() {
+        Random random = new Random(22);
+        Dungeon dungeon = TestUtils.emptyDungeon(random, 37, 29);
+        DungeonMap map = dungeon.getMap();
+        for (int i = 0; i < map.getSize(); i++) {
+            Cell cell = map.getCellByIndex(i);
+            int kind = random.nextInt(10);
+            if (kind < 3) cell.addOccupant(new Wall(dungeon, cell.getPosition()));
+            if (kind == 3) cell.addOccupant(new Swamp(dungeon, cell.getPosition(), 1 + random.nextInt(3)));
+        }
+        List<Portal> portals = new ArrayList<>();
+        for (int pair = 0; pair < 6; pair++) {
+            Portal[] ends = new Portal[2];
+            for (int end = 0; end < 2; end++) {
+                Cell cell = map.getCellByIndex(random.nextInt(map.getSize()));
+                ends[end] = new Portal(dungeon, cell.getPosition(), "colour" + pair);
+                cell.addOccupant(ends[end]);
+                portals.add(ends[end]);
+            }
+            ends[0].setCorrespondingPortal(ends[1]);
+            ends[1].setCorrespondingPortal(ends[0]);
+        }
+
+        HierarchicalPathFinder hierarchical = map.getHierarchicalPathFinder();
+        for (int round = 0; round < 10; round++) {
+            for (int query = 0; query < 50; query++) {
+                int from = random.nextInt(map.getSize());
+                int to = random.nextInt(map.getSize());
+                int next = hierarchical.nextStep(from, to);
+                // the same answer as the components, which take the portals
+                assertEquals(map.getComponents().canReach(from, to), next != -1,
+                        "round " + round + " from " + from + " to " + to);
+                if (next == -1 || from == to) continue;
+
+                int cost = TestUtils.pathCost(map, map.findPath(map.getCellByIndex(from), map.getCellByIndex(to)));
+                assertEquals(true, hierarchical.getLastCost() >= cost);
+                assertEquals(1, Math.abs(next % 37 - from % 37) + Math.abs(next / 37 - from / 37));
+                if (next == to) continue;
+                // the step is onto a cell the target can be reached from
+                int landing = map.getTeleport(next) == -1 ? next : map.getTeleport(next);
+                assertEquals(false, map.isBlocking(landing));
+                assertEquals(true, map.findPath(map.getCellByIndex(landing), map.getCellByIndex(to)) != null);
+            }
+
+            // portals blocked and removed: the map reports them to its finder
+            Portal portal = portals.get(random.nextInt(portals.size()));
+            if (random.nextBoolean() && map.getTeleport(portal.getCell().getIndex()) != -1) {
+                TestUtils.spawnWall(dungeon, portal.getPosition().getX(), portal.getPosition().getY());
+            } else {
+                portals.remove(portal);
+                map.removeEntity(portal);
+            }
+            HierarchicalPathFinder rebuilt = new HierarchicalPathFinder(map);
+            assertEquals(rebuilt.getNodeCount(), hierarchical.getNodeCount());
+            for (int query = 0; query < 30; query++) {
+                int from = random.nextInt(map.getSize());
+                int to = random.nextInt(map.getSize());
+                assertEquals(rebuilt.nextStep(from, to), hierarchical.nextStep(from, to), "round " + round);
+                assertEquals(rebuilt.getLastCost(), hierarchical.getLastCost(), "round " + round);
+            }
+        }
+    }
+
+    @Test
+    public void testHierarchicalFollowsMaze() {
+        Dungeon dungeon = Dungeon.generateDungeon(new Random(18), new Pos2d(1, 1), new Pos2d(127, 127),
+                GameMode.STANDARD, new Pos2d(129, 129));
+        DungeonMap map = dungeon.getMap();
+        assertEquals(true, map.getSize() >= DungeonMap.HIERARCHICAL_MIN_SIZE);
+
+        // a maze only has one path, walking the steps follows it
+        Cell cell = map.getCell(127, 127);
+        int length = map.findPath(cell, map.getPlayerCell()).size() - 1;
+        int steps = 0;
+        while (cell != map.getPlayerCell()) {
+            cell = map.stepTowardsPlayer(cell);
+            steps++;
+            assertEquals(true, steps <= length);
+        }
+        assertEquals(length, steps);
+    }
+}
@@ -3,11 +3,17 @@ package dungeonmania;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import dungeonmania.DungeonManiaController.GameMode;
+import dungeonmania.entities.movings.Player;
+import dungeonmania.entities.statics.Portal;
+import dungeonmania.entities.statics.Wall;
 import dungeonmania.response.models.DungeonResponse;
 import dungeonmania.util.Direction;
+import dungeonmania.util.PathFinder.Algorithm;
 import dungeonmania.util.Position;
 
 public class TestPortal {
@@ -81,4 +87,104 @@ public class TestPortal {
         assertEquals(0, p.getY());
     }
 
+    @Test
+    public void testPortalIndex() {
+        Dungeon dungeon = TestUtils.emptyDungeon(5, 5);
+        DungeonMap map = dungeon.getMap();
+        Portal blue = new Portal(dungeon, new Pos2d(4, 4), "BLUE");
+        map.getCell(4, 4).addOccupant(blue);
+        map.getCell(0, 0).addOccupant(new Portal(dungeon, new Pos2d(0, 0), "RED"));
+
+        assertEquals(blue, map.getPortal("BLUE"));
+        assertEquals(null, map.getPortal("GREEN"));
+        map.removeEntity(blue);
+        assertEquals(null, map.getPortal("BLUE"));
+    }
+
+    @Test
+    public void testPortalPaths() {
+        Dungeon dungeon = TestUtils.emptyDungeon(7, 3);
+        DungeonMap map = dungeon.getMap();
+        for (int y = 0; y < 3; y++) {
+            TestUtils.spawnWall(dungeon, 3, y);
+        }
+        Player player = TestUtils.spawnPlayer(dungeon, 5, 1);
+        Cell start = map.getCell(0, 1);
+        Cell playerCell = map.getPlayerCell();
+        assertEquals(null, map.findPath(start, playerCell));
+
+        // a pair of portals through the wall
+        Portal left = new Portal(dungeon, map.getPosition(1, 1), "red");
+        Portal right = new Portal(dungeon, map.getPosition(4, 1), "red");
+        map.getCell(1, 1).addOccupant(left);
+        map.getCell(4, 1).addOccupant(right);
+        left.setCorrespondingPortal(right);
+        right.setCorrespondingPortal(left);
+
+        List<Cell> expected = List.of(start, map.getCell(1, 1), map.getCell(4, 1), playerCell);
+        for (Algorithm algorithm : Algorithm.values()) {
+            map.getPathFinder().setAlgorithm(algorithm);
+            assertEquals(expected, map.findPath(start, playerCell), algorithm.toString());
+            assertEquals(2, TestUtils.pathCost(map, map.findPath(start, playerCell)), algorithm.toString());
+        }
+        map.getPathFinder().setAlgorithm(Algorithm.DIJKSTRA);
+        // ending on a portal doesn't teleport
+        assertEquals(List.of(start, map.getCell(1, 1)), map.findPath(start, map.getCell(1, 1)));
+
+        map.flood();
+        assertEquals(2, map.getPlayerDistance(start.getIndex()));
+        assertEquals(2, map.getPlayerDistance(map.getCell(2, 1).getIndex()));
+        assertEquals(3, map.getPlayerDistance(map.getCell(2, 2).getIndex()));
+        CostField field = new CostField(map);
+        field.update(playerCell.getIndex());
+        assertEquals(2, field.get(start.getIndex()));
+        assertEquals(map.getCell(1, 1).getIndex(), field.nextStep(start.getIndex()));
+        assertEquals(map.getCell(4, 1), map.getLandingCell(map.getCell(1, 1)));
+
+        // the cached path is followed through the portal
+        CachedPath cache = new CachedPath();
+        assertEquals(map.getCell(1, 1), map.stepTowardsPlayer(start, cache));
+        assertEquals(playerCell, map.stepTowardsPlayer(map.getCell(4, 1), cache));
+        assertEquals(1, map.getPathCacheHits());
+
+        // a bomb destroys one of the portals
+        map.removeEntity(right);
+        assertEquals(-1, map.getTeleport(map.getCell(1, 1).getIndex()));
+        assertEquals(map.getCell(1, 1), map.getLandingCell(map.getCell(1, 1)));
+        assertEquals(null, map.findPath(start, playerCell));
+        map.flood();
+        assertEquals(map.getSize(), map.getPlayerDistance(start.getIndex()));
+        field = new CostField(map);
+        field.update(playerCell.getIndex());
+        assertEquals(CostField.UNREACHABLE, field.get(start.getIndex()));
+    }
+
+    @Test
+    public void testBlockedPortalPair() {
+        Dungeon dungeon = TestUtils.emptyDungeon(7, 3);
+        DungeonMap map = dungeon.getMap();
+        Player player = TestUtils.spawnPlayer(dungeon, 0, 1);
+        Portal left = new Portal(dungeon, map.getPosition(1, 1), "red");
+        Portal right = new Portal(dungeon, map.getPosition(4, 1), "red");
+        map.getCell(1, 1).addOccupant(left);
+        map.getCell(4, 1).addOccupant(right);
+        left.setCorrespondingPortal(right);
+        right.setCorrespondingPortal(left);
+        Wall wall = TestUtils.spawnWall(dungeon, 4, 1);
+
+        // the followers don't walk onto a portal whose pair is blocked
+        Cell portalCell = map.getCell(1, 1);
+        assertEquals(false, map.canWalkOnto(portalCell.getIndex()));
+        assertEquals(null, map.getLandingCell(portalCell));
+        assertEquals(false, map.findPath(map.getCell(2, 1), map.getCell(0, 1)).contains(portalCell));
+
+        // unless it is the end of the walk
+        assertEquals(List.of(map.getCell(2, 1), portalCell), map.findPath(map.getCell(2, 1), portalCell));
+
+        map.removeEntity(wall);
+        assertEquals(true, map.canWalkOnto(portalCell.getIndex()));
+        assertEquals(map.getCell(4, 1), map.getLandingCell(portalCell));
+        player.handleMoveOrder(Direction.RIGHT);
+        assertEquals(map.getCell(4, 1), player.getCell());
+    }
 }
@@ -0,0 +1,85 @@
+package dungeonmania;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import dungeonmania.DungeonManiaController.GameMode;
+import dungeonmania.entities.statics.Portal;
+import dungeonmania.util.FileLoader;
+
+public class TestStaticLayer {
+    @Test
+    public void testStaticLayer() throws IOException {
+        for (String name : new String[] { "_door_maze", "#swamps", "portals" }) {
+            JSONObject json = new JSONObject(FileLoader.loadResourceFile("/dungeons/" + name + ".json"));
+            Path file = Files.createTempFile("layer", ".bin");
+            try {
+                StaticLayer.write(file, json);
+                // one mapping, and many small ones
+                for (StaticLayer layer : List.of(StaticLayer.open(file), StaticLayer.open(file, 3))) {
+                    DungeonMap expected = Dungeon.fromJSONObject(new Random(1), name, GameMode.STANDARD, json).getMap();
+                    DungeonMap actual = Dungeon.fromJSONObject(new Random(1), name, GameMode.STANDARD, json, layer)
+                            .getMap();
+
+                    // read straight from the file for the cells that weren't created
+                    int[] travelCostCounts = new int[256];
+                    for (int i = 0; i < expected.getSize(); i++) {
+                        assertEquals(expected.isBlocking(i), actual.isBlocking(i));
+                        assertEquals(expected.getTravelCost(i), actual.getTravelCost(i));
+                        travelCostCounts[expected.getTravelCost(i)]++;
+                    }
+                    // and from the header
+                    assertArrayEquals(travelCostCounts, layer.getTravelCostCounts());
+                    assertEquals(expected.getMinTravelCost(), actual.getMinTravelCost());
+                    assertEquals(expected.getMaxTravelCost(), actual.getMaxTravelCost());
+
+                    expected.flood();
+                    actual.flood();
+                    for (int i = 0; i < expected.getSize(); i++) {
+                        assertEquals(expected.getPlayerDistance(i), actual.getPlayerDistance(i));
+                    }
+
+                    // creating the cells creates the static entities
+                    for (int i = 0; i < expected.getSize(); i++) {
+                        assertEquals(expected.getCellByIndex(i).getOccupants().size(),
+                                actual.getCellByIndex(i).getOccupants().size());
+                        // and the values are then cached per chunk
+                        assertEquals(expected.isBlocking(i), actual.isBlocking(i));
+                        assertEquals(expected.getTravelCost(i), actual.getTravelCost(i));
+                    }
+                    assertEquals(expected.toString(), actual.toString());
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testStaticLayerPortals() throws IOException {
+        JSONObject json = new JSONObject(FileLoader.loadResourceFile("/dungeons/portals.json"));
+        Path file = Files.createTempFile("layer", ".bin");
+        try {
+            StaticLayer.write(file, json);
+            DungeonMap map = Dungeon.fromJSONObject(new Random(1), "portals", GameMode.STANDARD, json,
+                    StaticLayer.open(file)).getMap();
+
+            // the pair is created along with the first portal
+            Portal portal = map.getPortal("BLUE");
+            assertEquals(2, map.countEntities(Portal.class));
+            assertEquals(portal, portal.correspondingPortal.correspondingPortal);
+            assertEquals(false, portal.getTeleportDestination() == portal.getCell());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -2,10 +2,17 @@ package dungeonmania;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
 
+import org.json.JSONObject;
+
+import dungeonmania.DungeonManiaController.GameMode;
 import dungeonmania.entities.MovingEntity;
 import dungeonmania.entities.collectables.buildables.Sceptre;
 import dungeonmania.entities.movings.Assassin;
@@ -16,11 +23,18 @@ import dungeonmania.entities.movings.ZombieToast;
 import dungeonmania.entities.statics.Boulder;
 import dungeonmania.entities.statics.Wall;
 import dungeonmania.entities.statics.ZombieToastSpawner;
+import dungeonmania.goal.ExitGoal;
 import dungeonmania.response.models.DungeonResponse;
 import dungeonmania.response.models.EntityResponse;
+import dungeonmania.util.FileLoader;
 import dungeonmania.util.Position;
 
 public class TestUtils {
+    /**
+     * the bundled dungeons that use entities the game doesn't have
+     */
+    private static final List<String> UNLOADABLE_DUNGEONS = List.of("_assault");
+
     public static Position getPlayerPosition(DungeonResponse resp) {
         for (EntityResponse e : resp.getEntities()) {
             if (Objects.equals(e.getType(), "player")) {
@@ -52,6 +66,28 @@ public class TestUtils {
         });
     }
 
+    /**
+     * @param width
+     * @param height
+     * @return a dungeon with nothing in it, to be filled with the spawn methods
+     */
+    public static Dungeon emptyDungeon(int width, int height) {
+        return emptyDungeon(new Random(1), width, height);
+    }
+
+    public static Dungeon emptyDungeon(Random random, int width, int height) {
+        return new Dungeon(random, "manual", GameMode.STANDARD, new DungeonMap(width, height), new ExitGoal());
+    }
+
+    public static Player spawnPlayer(Dungeon dungeon, int x, int y) {
+        Cell playerCell = dungeon.getMap().getCell(x, y);
+        Player player = new Player(dungeon, playerCell.getPosition());
+        playerCell.addOccupant(player);
+        dungeon.setPlayer(player);
+
+        return player;
+    }
+
     public static Sceptre spawnScepter(Dungeon dungeon, int x, int y) {
         Cell scepterCell = dungeon.getMap().getCell(x, y);
         Sceptre Scepter = new Sceptre(dungeon, scepterCell.getPosition());
@@ -100,6 +136,34 @@ public class TestUtils {
         return spider;
     }
 
+    /**
+     * @return the bundled dungeons by name, in standard mode with the same
+     *         seed, but the ones that can't be loaded (loading any other
+     *         throws)
+     */
+    public static Map<String, Dungeon> loadBundledDungeons() throws IOException {
+        Map<String, Dungeon> dungeons = new LinkedHashMap<>();
+        for (String name : FileLoader.listFileNamesInResourceDirectory("/dungeons")) {
+            if (UNLOADABLE_DUNGEONS.contains(name)) continue;
+            String content = FileLoader.loadResourceFile("/dungeons/" + name + ".json");
+            dungeons.put(name, Dungeon.fromJSONObject(new Random(1), name, GameMode.STANDARD, new JSONObject(content)));
+        }
+        return dungeons;
+    }
+
+    /**
+     * @return the cost of walking along the path (the first cell is free, and
+     *         so is the one a portal leads to)
+     */
+    public static int pathCost(DungeonMap map, List<Cell> path) {
+        int cost = 0;
+        for (int i = 1; i < path.size(); i++) {
+            if (i > 1 && map.getTeleport(path.get(i - 1).getIndex()) == path.get(i).getIndex()) continue;
+            cost += map.getTravelCost(path.get(i).getIndex());
+        }
+        return cost;
+    }
+
     public static Mercenary getMercenary(Dungeon dungeon) {
         return (Mercenary) dungeon.getMap().allEntities().stream().filter(e -> e instanceof Mercenary).findFirst()
                 .orElse(null);